@@ -0,0 +1,20 @@
+package ch.sulco.yal.benchmark;
+
+import ch.sulco.yal.dsp.audio.AudioSource;
+
+/**
+ * Audio source without a capture device, data is handed to
+ * {@link #newAudioData(byte[], int, int)} by the benchmark itself.
+ */
+public class BenchmarkAudioSource extends AudioSource {
+
+	@Override
+	protected long getSampleLength() {
+		return BenchmarkDataStore.LOOP_LENGTH;
+	}
+
+	@Override
+	protected Thread getRecordThread() {
+		return new Thread();
+	}
+}
@@ -0,0 +1,76 @@
+package ch.sulco.yal.benchmark;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.util.Arrays;
+import java.util.HashMap;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import com.google.gson.Gson;
+
+import ch.sulco.yal.AppConfig;
+import ch.sulco.yal.dm.Loop;
+import ch.sulco.yal.dm.Mapping;
+import ch.sulco.yal.dm.Sample;
+import ch.sulco.yal.dsp.DataStore;
+
+@Singleton
+public class BenchmarkDataStore extends DataStore {
+
+	public static final long LOOP_LENGTH = 2000000L;
+
+	@Inject
+	private AppConfig appConfig;
+
+	@Override
+	public void setup() {
+		// populated explicitly, nothing is read from disk
+	}
+
+	/**
+	 * Creates {@code loopCount} loops of {@code samplesPerLoop} samples each,
+	 * the last one active, so linear lookups see their worst case.
+	 */
+	public void populate(int loopCount, int samplesPerLoop) {
+		int dataLength = (int) (LOOP_LENGTH * this.appConfig.getSampleRate() / 1000000)
+				* this.appConfig.getAudioFormat().getFrameSize();
+		long sampleId = 0;
+		for (long loopId = 0; loopId < loopCount; loopId++) {
+			Loop loop = new Loop(loopId);
+			loop.setName("Loop " + loopId);
+			loop.setTimeLength(LOOP_LENGTH);
+			loop.setDataLength(dataLength);
+			loop.setActive(loopId == loopCount - 1);
+			for (int i = 0; i < samplesPerLoop; i++) {
+				Sample sample = new Sample();
+				sample.setId(sampleId++);
+				sample.setChannelId((long) i);
+				loop.addSample(sample);
+			}
+			this.createLoop(loop);
+		}
+	}
+
+	/**
+	 * Loads the shipped controller mappings and appends {@code extraCount}
+	 * note mappings on MIDI channel 1 that never match the shipped ones.
+	 */
+	public void populateMappings(int extraCount) throws IOException {
+		try (Reader reader = new InputStreamReader(DataStore.class.getResourceAsStream("/data/mappings.json"), "UTF-8")) {
+			this.getMappings().addAll(Arrays.asList(new Gson().fromJson(reader, Mapping[].class)));
+		}
+		for (int i = 0; i < extraCount; i++) {
+			Mapping mapping = new Mapping();
+			mapping.setSource("benchmark");
+			mapping.setProcessorMethod("stop");
+			mapping.setTriggerValueMap(new HashMap<>());
+			mapping.getTriggerValueMap().put("command", 144);
+			mapping.getTriggerValueMap().put("channel", 1);
+			mapping.getTriggerValueMap().put("data1", i % 128);
+			this.getMappings().add(mapping);
+		}
+	}
+}
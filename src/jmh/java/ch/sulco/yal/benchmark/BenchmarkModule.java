@@ -0,0 +1,40 @@
+package ch.sulco.yal.benchmark;
+
+import com.google.inject.AbstractModule;
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+
+import ch.sulco.yal.AppConfig;
+import ch.sulco.yal.PostConstructModule;
+import ch.sulco.yal.dsp.DataStore;
+import ch.sulco.yal.dsp.audio.AudioSink;
+import ch.sulco.yal.dsp.audio.AudioSource;
+import ch.sulco.yal.dsp.audio.Processor;
+import ch.sulco.yal.dsp.audio.onboard.AudioSystemProvider;
+import ch.sulco.yal.dsp.audio.onboard.Synchronizer;
+import ch.sulco.yal.dsp.audio.onboard.TransportClock;
+import ch.sulco.yal.simulator.SimulatedAudioSink;
+import ch.sulco.yal.simulator.SimulationAudioSystemProvider;
+
+/**
+ * Wires the application without devices, web server or files so each
+ * benchmark gets a fresh, deterministic object graph.
+ */
+public class BenchmarkModule extends AbstractModule {
+
+	public static Injector createInjector() {
+		return Guice.createInjector(new BenchmarkModule(), new PostConstructModule());
+	}
+
+	@Override
+	protected void configure() {
+		this.bind(AppConfig.class);
+		this.bind(AudioSystemProvider.class).to(SimulationAudioSystemProvider.class);
+		this.bind(DataStore.class).to(BenchmarkDataStore.class);
+		this.bind(Processor.class).to(BenchmarkProcessor.class);
+		this.bind(AudioSink.class).to(SimulatedAudioSink.class);
+		this.bind(AudioSource.class).to(BenchmarkAudioSource.class);
+		this.bind(Synchronizer.class);
+		this.bind(TransportClock.class);
+	}
+}
@@ -0,0 +1,39 @@
+package ch.sulco.yal.benchmark;
+
+import javax.inject.Singleton;
+
+import ch.sulco.yal.dsp.audio.Processor;
+
+/**
+ * Processor whose control methods only count their invocations, so control
+ * dispatch is measured without driving any audio.
+ */
+@Singleton
+public class BenchmarkProcessor extends Processor {
+
+	private long invocations;
+
+	public long getInvocations() {
+		return this.invocations;
+	}
+
+	@Override
+	public void play() {
+		this.invocations++;
+	}
+
+	@Override
+	public void stop() {
+		this.invocations++;
+	}
+
+	@Override
+	public void loop() {
+		this.invocations++;
+	}
+
+	@Override
+	public void setChannelRecording(Long channelId, Boolean recording) {
+		this.invocations += channelId;
+	}
+}
@@ -0,0 +1,65 @@
+package ch.sulco.yal.controller;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.google.inject.Injector;
+
+import ch.sulco.yal.benchmark.BenchmarkDataStore;
+import ch.sulco.yal.benchmark.BenchmarkModule;
+import ch.sulco.yal.benchmark.BenchmarkProcessor;
+import ch.sulco.yal.dsp.DataStore;
+import ch.sulco.yal.dsp.audio.Processor;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class ControlHandlerBenchmark {
+
+	@Param({ "0", "64" })
+	private int extraMappings;
+
+	private ControlHandler controlHandler;
+	private BenchmarkProcessor processor;
+
+	@Setup
+	public void setup() throws IOException {
+		Injector injector = BenchmarkModule.createInjector();
+		((BenchmarkDataStore) injector.getInstance(DataStore.class)).populateMappings(this.extraMappings);
+		this.processor = (BenchmarkProcessor) injector.getInstance(Processor.class);
+		this.controlHandler = injector.getInstance(ControlHandler.class);
+	}
+
+	@Benchmark
+	public long handleWithoutArguments() {
+		this.controlHandler.handleMessage(176, 0, 41, 0);
+		return this.processor.getInvocations();
+	}
+
+	@Benchmark
+	public long handleWithArguments() {
+		this.controlHandler.handleMessage(176, 0, 64, 127);
+		return this.processor.getInvocations();
+	}
+
+	@Benchmark
+	public long handleUnmapped() {
+		this.controlHandler.handleMessage(144, 15, 1, 1);
+		return this.processor.getInvocations();
+	}
+}
@@ -0,0 +1,81 @@
+package ch.sulco.yal.dsp;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import ch.sulco.yal.benchmark.BenchmarkDataStore;
+import ch.sulco.yal.benchmark.BenchmarkModule;
+import ch.sulco.yal.dm.Loop;
+import ch.sulco.yal.dm.LooperState;
+import ch.sulco.yal.dm.Sample;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class DataStoreBenchmark {
+
+	@Param({ "4", "64" })
+	private int loops;
+
+	@Param({ "8" })
+	private int samplesPerLoop;
+
+	private DataStore dataStore;
+	private long lastLoopId;
+	private long lastSampleId;
+
+	@Setup
+	public void setup() {
+		BenchmarkDataStore benchmarkDataStore = (BenchmarkDataStore) BenchmarkModule.createInjector().getInstance(DataStore.class);
+		benchmarkDataStore.populate(this.loops, this.samplesPerLoop);
+		this.dataStore = benchmarkDataStore;
+		this.dataStore.addListener(event -> {
+		});
+		this.lastLoopId = this.loops - 1;
+		this.lastSampleId = this.loops * this.samplesPerLoop - 1;
+	}
+
+	@Benchmark
+	public Loop getCurrentLoop() {
+		return this.dataStore.getCurrentLoop();
+	}
+
+	@Benchmark
+	public Loop getLoop() {
+		return this.dataStore.getLoop(this.lastLoopId);
+	}
+
+	@Benchmark
+	public Sample getCurrentLoopSample() {
+		return this.dataStore.getCurrentLoopSample(this.lastSampleId);
+	}
+
+	@Benchmark
+	public Sample getSample() {
+		return this.dataStore.getSample(this.lastLoopId, this.lastSampleId);
+	}
+
+	@Benchmark
+	public Long getNextSampleId() {
+		return this.dataStore.getNextSampleId();
+	}
+
+	@Benchmark
+	public void publishEvent() {
+		this.dataStore.setLooperState(LooperState.PLAYING);
+	}
+}
@@ -0,0 +1,82 @@
+package ch.sulco.yal.dsp.audio;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.google.inject.Injector;
+
+import ch.sulco.yal.AppConfig;
+import ch.sulco.yal.benchmark.BenchmarkDataStore;
+import ch.sulco.yal.benchmark.BenchmarkModule;
+import ch.sulco.yal.dm.InputChannel;
+import ch.sulco.yal.dm.RecordingState;
+import ch.sulco.yal.dsp.DataStore;
+
+/**
+ * Capture path per period: the device thread writing into the ring buffer,
+ * a consumer reading it back, and the recording listener storing an overdub.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class AudioSourceBenchmark {
+
+	private AudioSource audioSource;
+	private CaptureRingBuffer captureBuffer;
+	private CaptureRingBuffer.Cursor cursor;
+	private byte[] block;
+	private byte[] readBlock;
+
+	@Setup
+	public void setup() {
+		Injector injector = BenchmarkModule.createInjector();
+		((BenchmarkDataStore) injector.getInstance(DataStore.class)).populate(1, 1);
+		AppConfig appConfig = injector.getInstance(AppConfig.class);
+		this.block = new byte[appConfig.getPeriodFrames() * appConfig.getAudioFormat().getFrameSize()];
+		this.readBlock = new byte[this.block.length];
+		new Random(42).nextBytes(this.block);
+
+		InputChannel inputChannel = new InputChannel();
+		inputChannel.setId(0L);
+		inputChannel.setRecordingState(RecordingState.STOPPED);
+		this.audioSource = injector.getInstance(AudioSource.class);
+		this.audioSource.setInputChannel(inputChannel);
+		this.audioSource.initialize();
+		this.audioSource.startRecord();
+		this.audioSource.loopStarted(false, 0);
+
+		this.captureBuffer = new CaptureRingBuffer(1 << 20);
+		this.cursor = this.captureBuffer.newCursor();
+	}
+
+	@TearDown
+	public void tearDown() {
+		this.audioSource.stopRecord();
+	}
+
+	@Benchmark
+	public void newAudioData() {
+		this.audioSource.newAudioData(this.block, 0, this.block.length);
+	}
+
+	@Benchmark
+	public int captureBufferWriteRead() {
+		this.captureBuffer.write(this.block, 0, this.block.length);
+		return this.cursor.read(this.readBlock, 0, this.readBlock.length);
+	}
+}
@@ -0,0 +1,68 @@
+package ch.sulco.yal.dsp.audio.onboard;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.google.inject.Injector;
+
+import ch.sulco.yal.AppConfig;
+import ch.sulco.yal.benchmark.BenchmarkDataStore;
+import ch.sulco.yal.benchmark.BenchmarkModule;
+import ch.sulco.yal.dsp.DataStore;
+
+/**
+ * Per-period work of the transport: advancing the clock (which runs the
+ * synchronizer's boundary check) and reading the loop position.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class SynchronizerBenchmark {
+
+	private TransportClock transportClock;
+	private Synchronizer synchronizer;
+	private int periodFrames;
+
+	@Setup
+	public void setup() {
+		Injector injector = BenchmarkModule.createInjector();
+		((BenchmarkDataStore) injector.getInstance(DataStore.class)).populate(1, 1);
+		this.periodFrames = injector.getInstance(AppConfig.class).getPeriodFrames();
+		this.transportClock = injector.getInstance(TransportClock.class);
+		this.synchronizer = injector.getInstance(Synchronizer.class);
+		this.transportClock.claim(this);
+		this.synchronizer.setLength(BenchmarkDataStore.LOOP_LENGTH);
+		this.synchronizer.startLoop();
+	}
+
+	@TearDown
+	public void tearDown() {
+		this.synchronizer.stopLoop();
+		this.transportClock.release(this);
+	}
+
+	@Benchmark
+	public long advance() {
+		this.transportClock.advance(this, this.periodFrames);
+		return this.transportClock.getFramePosition();
+	}
+
+	@Benchmark
+	public long getCurrentPosition() {
+		return this.synchronizer.getCurrentPosition();
+	}
+}
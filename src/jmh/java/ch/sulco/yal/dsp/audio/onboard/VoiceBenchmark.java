@@ -0,0 +1,78 @@
+package ch.sulco.yal.dsp.audio.onboard;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import javax.sound.sampled.AudioFormat;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import ch.sulco.yal.AppConfig;
+import ch.sulco.yal.dm.PcmBuffer;
+import ch.sulco.yal.dm.Sample;
+
+/**
+ * Mixing one render period of looping voices, as the player's render
+ * thread does.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class VoiceBenchmark {
+
+	@Param({ "1", "8", "32" })
+	private int voiceCount;
+
+	private Voice[] voices;
+	private float[] mix;
+	private int periodFrames;
+	private int channels;
+
+	@Setup
+	public void setup() {
+		AppConfig appConfig = new AppConfig();
+		AudioFormat audioFormat = appConfig.getAudioFormat();
+		this.periodFrames = appConfig.getPeriodFrames();
+		this.channels = audioFormat.getChannels();
+		this.mix = new float[this.periodFrames * this.channels];
+		int frames = (int) (2 * audioFormat.getSampleRate());
+		Random random = new Random(42);
+		this.voices = new Voice[this.voiceCount];
+		for (int i = 0; i < this.voiceCount; i++) {
+			PcmBuffer data = PcmBuffer.allocate(frames, audioFormat);
+			for (int frame = 0; frame < frames; frame++) {
+				for (int channel = 0; channel < this.channels; channel++) {
+					data.setShort(frame, channel, (short) random.nextInt());
+				}
+			}
+			Sample sample = new Sample();
+			sample.setId((long) i);
+			sample.setData(data);
+			this.voices[i] = new Voice(sample);
+			this.voices[i].play(random.nextInt(frames), -1);
+		}
+	}
+
+	@Benchmark
+	public float[] mix() {
+		Arrays.fill(this.mix, 0f);
+		for (Voice voice : this.voices) {
+			voice.mix(this.mix, this.periodFrames, this.channels);
+		}
+		return this.mix;
+	}
+}
@@ -0,0 +1,149 @@
+package ch.sulco.yal.web;
+
+import java.lang.reflect.Proxy;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.jetty.websocket.api.RemoteEndpoint;
+import org.eclipse.jetty.websocket.api.Session;
+import org.eclipse.jetty.websocket.api.WriteCallback;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import ch.sulco.yal.benchmark.BenchmarkDataStore;
+import ch.sulco.yal.benchmark.BenchmarkModule;
+import ch.sulco.yal.dm.InputChannel;
+import ch.sulco.yal.dm.LooperState;
+import ch.sulco.yal.dm.RecordingState;
+import ch.sulco.yal.dm.Sample;
+import ch.sulco.yal.dsp.DataStore;
+import ch.sulco.yal.dsp.DataStore.DataEvent;
+
+/**
+ * Path taken by {@link Server#onDataEvent(DataEvent)} and the periodic flush
+ * for each kind of event: coalescing, delta encoding and broadcasting to
+ * {@link #clients} connected clients whose sends complete immediately,
+ * without starting the web server.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class ServerBenchmark {
+
+	@Param({ "8", "64" })
+	private int samplesPerLoop;
+
+	@Param({ "1", "4" })
+	private int clients;
+
+	private final UpdateFeed updateFeed = new UpdateFeed();
+	private final UpdateBroadcaster broadcaster = new UpdateBroadcaster();
+	private DataEvent loopUpdated;
+	private DataEvent channelUpdated;
+	private DataEvent looperStateUpdated;
+	private Sample changingSample;
+	private float gain;
+
+	@Setup
+	public void setup() throws InterruptedException {
+		BenchmarkDataStore dataStore = (BenchmarkDataStore) BenchmarkModule.createInjector().getInstance(DataStore.class);
+		dataStore.populate(1, this.samplesPerLoop);
+		BlockingQueue<DataEvent> events = new LinkedBlockingQueue<>();
+		dataStore.addListener(events::add);
+
+		dataStore.updateLoop(dataStore.getCurrentLoop());
+		this.loopUpdated = events.take();
+		this.changingSample = dataStore.getCurrentLoop().getSamples().get(0);
+
+		InputChannel inputChannel = new InputChannel();
+		inputChannel.setId(0L);
+		inputChannel.setName("Input 0");
+		inputChannel.setRecordingState(RecordingState.RECORDING);
+		dataStore.updateChannel(inputChannel);
+		this.channelUpdated = events.take();
+
+		dataStore.setLooperState(LooperState.PLAYING);
+		this.looperStateUpdated = events.take();
+
+		for (int i = 0; i < this.clients; i++) {
+			this.broadcaster.addSession(newSession());
+		}
+		// the first update of a loop is sent in full
+		this.updateFeed.add(this.loopUpdated);
+		this.updateFeed.flush(this.broadcaster);
+	}
+
+	/**
+	 * A single sample changed, so only its gain goes out as a delta.
+	 */
+	@Benchmark
+	public void loopUpdated() {
+		this.gain = this.gain == 1f ? 0.5f : 1f;
+		this.changingSample.setGain(this.gain);
+		this.updateFeed.add(this.loopUpdated);
+		this.updateFeed.flush(this.broadcaster);
+	}
+
+	@Benchmark
+	public void channelUpdated() {
+		this.updateFeed.add(this.channelUpdated);
+		this.updateFeed.flush(this.broadcaster);
+	}
+
+	@Benchmark
+	public void looperStateUpdated() {
+		this.updateFeed.add(this.looperStateUpdated);
+		this.updateFeed.flush(this.broadcaster);
+	}
+
+	/**
+	 * A burst of repeated changes within one flush interval, collapsed to one
+	 * update per entity.
+	 */
+	@Benchmark
+	public void coalescedBurst() {
+		for (int i = 0; i < 8; i++) {
+			this.updateFeed.add(this.channelUpdated);
+			this.updateFeed.add(this.looperStateUpdated);
+		}
+		this.updateFeed.flush(this.broadcaster);
+	}
+
+	private static Session newSession() {
+		RemoteEndpoint remote = (RemoteEndpoint) Proxy.newProxyInstance(RemoteEndpoint.class.getClassLoader(),
+				new Class<?>[] { RemoteEndpoint.class }, (proxy, method, args) -> {
+					if (method.getName().equals("sendString") && args.length == 2) {
+						((WriteCallback) args[1]).writeSuccess();
+					}
+					return null;
+				});
+		return (Session) Proxy.newProxyInstance(Session.class.getClassLoader(), new Class<?>[] { Session.class },
+				(proxy, method, args) -> {
+					switch (method.getName()) {
+					case "getRemote":
+						return remote;
+					case "isOpen":
+						return true;
+					case "hashCode":
+						return System.identityHashCode(proxy);
+					case "equals":
+						return proxy == args[0];
+					default:
+						return null;
+					}
+				});
+	}
+}
@@ -6,6 +6,8 @@ import java.nio.file.Paths;
 import javax.inject.Singleton;
 import javax.sound.sampled.AudioFormat;
 
+import ch.sulco.yal.dsp.OverflowPolicy;
+
 @Singleton
 public class AppConfig {
 
@@ -17,6 +19,10 @@ public class AppConfig {
 		return 16;
 	}
 
+	public int getPeriodFrames() {
+		return 512;
+	}
+
 	public AudioFormat getAudioFormat() {
 		int channels = 2;
 		boolean signed = true;
@@ -24,6 +30,42 @@ public class AppConfig {
 		return new AudioFormat(this.getSampleRate(), this.getSampleSize(), channels, signed, bigEndian);
 	}
 
+	public boolean isMappedSampleStorage() {
+		return !Boolean.getBoolean("heapSamples");
+	}
+
+	public boolean isCompressedSampleStorage() {
+		return Boolean.getBoolean("compressedSamples");
+	}
+
+	public boolean isFitSamplesToLoop() {
+		return Boolean.getBoolean("fitSamples");
+	}
+
+	public int getSampleLoaderThreads() {
+		return Integer.getInteger("sampleLoaderThreads", Runtime.getRuntime().availableProcessors());
+	}
+
+	public int getJournalCompactionRecords() {
+		return Integer.getInteger("journalCompactionRecords", 1000);
+	}
+
+	public long getIdleLineTimeout() {
+		return Long.getLong("idleLineTimeout", 30000);
+	}
+
+	public int getEventQueueCapacity() {
+		return Integer.getInteger("eventQueueCapacity", 256);
+	}
+
+	public OverflowPolicy getEventOverflowPolicy() {
+		return OverflowPolicy.valueOf(System.getProperty("eventOverflowPolicy", OverflowPolicy.DROP_OLDEST.name()));
+	}
+
+	public long getUiUpdateInterval() {
+		return Long.getLong("uiUpdateInterval", 50);
+	}
+
 	public String getSettingsPath() {
 		return Paths.get(getLocalRoot().toString(), "config").toString();
 	}
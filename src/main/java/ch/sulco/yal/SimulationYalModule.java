@@ -9,6 +9,7 @@ import ch.sulco.yal.dsp.audio.AudioSource;
 import ch.sulco.yal.dsp.audio.Processor;
 import ch.sulco.yal.dsp.audio.onboard.AudioSystemProvider;
 import ch.sulco.yal.dsp.audio.onboard.Synchronizer;
+import ch.sulco.yal.dsp.audio.onboard.TransportClock;
 import ch.sulco.yal.simulator.SimulatedAudioSink;
 import ch.sulco.yal.simulator.SimulatedAudioSource;
 import ch.sulco.yal.simulator.SimulationAudioSystemProvider;
@@ -28,6 +29,7 @@ public class SimulationYalModule extends AbstractModule {
 		this.bind(AudioSink.class).to(SimulatedAudioSink.class);
 		this.bind(AudioSource.class).to(SimulatedAudioSource.class);
 		this.bind(Synchronizer.class);
+		this.bind(TransportClock.class);
 		this.bind(Server.class);
 	}
 }
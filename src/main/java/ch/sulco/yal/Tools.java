@@ -5,9 +5,6 @@ import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.List;
 
-import javax.sound.sampled.AudioSystem;
-import javax.sound.sampled.Clip;
-
 public class Tools {
 	public static void main(String[] args) throws Exception {
 		AppConfig appConfig = new AppConfig();
@@ -17,12 +14,10 @@ public class Tools {
 		files.add("/sounds/fm_edd_109_05.wav");
 		for (String file : files) {
 			byte[] data = Files.readAllBytes(Paths.get(Tools.class.getResource(file).getFile()));
-			Clip clip = AudioSystem.getClip();
-			clip.open(appConfig.getAudioFormat(), data, 0,
-					data.length);
+			long frames = data.length / appConfig.getAudioFormat().getFrameSize();
 			System.out.println(file);
 			System.out.println(data.length);
-			System.out.println(clip.getMicrosecondLength());
+			System.out.println((long) (frames * 1000000L / (double) appConfig.getSampleRate()));
 		}
 	}
 }
@@ -14,6 +14,7 @@ import ch.sulco.yal.dsp.audio.onboard.AudioSystemProvider;
 import ch.sulco.yal.dsp.audio.onboard.Player;
 import ch.sulco.yal.dsp.audio.onboard.Recorder;
 import ch.sulco.yal.dsp.audio.onboard.Synchronizer;
+import ch.sulco.yal.dsp.audio.onboard.TransportClock;
 import ch.sulco.yal.web.Server;
 
 public class YalModule extends AbstractModule {
@@ -30,6 +31,7 @@ public class YalModule extends AbstractModule {
 		this.bind(AudioSink.class).to(Player.class);
 		this.bind(AudioSource.class).to(Recorder.class);
 		this.bind(Synchronizer.class);
+		this.bind(TransportClock.class);
 		this.bind(Server.class);
 		this.bind(ClickTrackGenerator.class);
 		this.bind(SampleMutator.class);
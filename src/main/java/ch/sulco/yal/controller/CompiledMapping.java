@@ -0,0 +1,150 @@
+package ch.sulco.yal.controller;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.util.List;
+import java.util.function.DoubleFunction;
+
+import net.sourceforge.jeval.EvaluationException;
+import net.sourceforge.jeval.Evaluator;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import ch.sulco.yal.dm.Mapping;
+import ch.sulco.yal.dm.MappingMethodArgument;
+import ch.sulco.yal.dsp.audio.Processor;
+
+/**
+ * A mapping with its trigger values unboxed, its argument expressions parsed
+ * and its processor method bound, ready to be invoked per message.
+ */
+public class CompiledMapping {
+	private final static Logger log = LoggerFactory.getLogger(CompiledMapping.class);
+
+	static final int ANY = -1;
+
+	private static final MethodType INVOKER_TYPE = MethodType.methodType(void.class, Object[].class);
+
+	private final Mapping mapping;
+	private final int command;
+	private final int channel;
+	private final int data1;
+	private final int data2;
+	private final MappingExpression[] argumentExpressions;
+	private final DoubleFunction<?>[] argumentConverters;
+	private final MethodHandle invoker;
+
+	CompiledMapping(Mapping mapping, Processor processor) throws ReflectiveOperationException {
+		this.mapping = mapping;
+		this.command = triggerValue(mapping, "command");
+		this.channel = triggerValue(mapping, "channel");
+		this.data1 = triggerValue(mapping, "data1");
+		this.data2 = triggerValue(mapping, "data2");
+		List<MappingMethodArgument> arguments = mapping.getProcessorMethodArguments();
+		int argumentCount = arguments == null ? 0 : arguments.size();
+		Class<?>[] argumentClasses = new Class<?>[argumentCount];
+		this.argumentExpressions = new MappingExpression[argumentCount];
+		this.argumentConverters = new DoubleFunction<?>[argumentCount];
+		for (int i = 0; i < argumentCount; i++) {
+			MappingMethodArgument argument = arguments.get(i);
+			argumentClasses[i] = Class.forName(argument.getType());
+			this.argumentExpressions[i] = expression(mapping.getValueExpressionMap().get(argument.getName()));
+			this.argumentConverters[i] = converter(argumentClasses[i]);
+		}
+		Method method = Processor.class.getMethod(mapping.getProcessorMethod(), argumentClasses);
+		this.invoker = MethodHandles.publicLookup().unreflect(method).bindTo(processor)
+				.asSpreader(Object[].class, argumentCount)
+				.asType(INVOKER_TYPE);
+	}
+
+	int getCommand() {
+		return this.command;
+	}
+
+	int getChannel() {
+		return this.channel;
+	}
+
+	int getData1() {
+		return this.data1;
+	}
+
+	public boolean matches(int command, int channel, int data1, int data2) {
+		return (this.command == ANY || this.command == command)
+				&& (this.channel == ANY || this.channel == channel)
+				&& (this.data1 == ANY || this.data1 == data1)
+				&& (this.data2 == ANY || this.data2 == data2);
+	}
+
+	public void invoke(int command, int channel, int data1, int data2) {
+		Object[] argumentValues = new Object[this.argumentExpressions.length];
+		try {
+			for (int i = 0; i < argumentValues.length; i++) {
+				argumentValues[i] = this.argumentConverters[i].apply(
+						this.argumentExpressions[i].evaluate(command, channel, data1, data2));
+			}
+			this.invoker.invokeExact(argumentValues);
+		} catch (Throwable e) {
+			log.error("Unable to trigger processor method [" + this.mapping.getProcessorMethod() + "]", e);
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "CompiledMapping [" + this.mapping.getProcessorMethod() + "][command=" + this.command + "][channel=" + this.channel
+				+ "][data1=" + this.data1 + "][data2=" + this.data2 + "]";
+	}
+
+	private static int triggerValue(Mapping mapping, String key) {
+		Object value = mapping.getTriggerValueMap() == null ? null : mapping.getTriggerValueMap().get(key);
+		if (value == null) {
+			return ANY;
+		}
+		// Gson reads untyped JSON numbers as Double
+		return value instanceof Number ? ((Number) value).intValue() : Integer.parseInt(value.toString());
+	}
+
+	private static MappingExpression expression(String expression) {
+		try {
+			return MappingExpressionCompiler.compile(expression);
+		} catch (IllegalArgumentException e) {
+			log.warn("Falling back to jeval for expression [" + expression + "]: " + e.getMessage());
+			Evaluator evaluator = new Evaluator();
+			return (command, channel, data1, data2) -> {
+				synchronized (evaluator) {
+					evaluator.putVariable("command", Integer.toString(command));
+					evaluator.putVariable("channel", Integer.toString(channel));
+					evaluator.putVariable("data1", Integer.toString(data1));
+					evaluator.putVariable("data2", Integer.toString(data2));
+					try {
+						return Double.valueOf(evaluator.evaluate(expression));
+					} catch (EvaluationException ee) {
+						throw new IllegalArgumentException("Unable to evaluate expression [" + expression + "]", ee);
+					}
+				}
+			};
+		}
+	}
+
+	private static DoubleFunction<?> converter(Class<?> type) {
+		if (type == Long.class) {
+			return value -> (long) value;
+		}
+		if (type == Integer.class) {
+			return value -> (int) value;
+		}
+		if (type == Boolean.class) {
+			return value -> value > 0;
+		}
+		if (type == Double.class) {
+			return value -> value;
+		}
+		if (type == Float.class) {
+			return value -> (float) value;
+		}
+		return value -> Double.toString(value);
+	}
+}
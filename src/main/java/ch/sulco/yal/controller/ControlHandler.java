@@ -1,28 +1,17 @@
 package ch.sulco.yal.controller;
 
-import java.lang.reflect.InvocationTargetException;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
-import java.util.Objects;
 
 import javax.inject.Inject;
 import javax.inject.Singleton;
 
-import net.sourceforge.jeval.EvaluationException;
-import net.sourceforge.jeval.Evaluator;
-
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import ch.sulco.yal.dm.Mapping;
-import ch.sulco.yal.dm.MappingMethodArgument;
 import ch.sulco.yal.dsp.DataStore;
 import ch.sulco.yal.dsp.audio.Processor;
 
-import com.google.common.base.Function;
-import com.google.common.collect.FluentIterable;
-
 @Singleton
 public class ControlHandler {
 
@@ -34,66 +23,31 @@ public class ControlHandler {
 	@Inject
 	private Processor processor;
 
-	private final Evaluator evaluator = new Evaluator();
+	private volatile MappingTable mappingTable;
 
 	public void handleMessage(int command, int channel, int data1, int data2) {
-		for (Mapping mapping : this.dataStore.getMappings()) {
-			if ((Objects.equals(mapping.getTriggerValueMap().get("command"), command) || mapping.getTriggerValueMap().get("command") == null)
-					&& (Objects.equals(mapping.getTriggerValueMap().get("channel"), channel) || mapping.getTriggerValueMap().get("channel") == null)
-					&& (Objects.equals(mapping.getTriggerValueMap().get("data1"), data1) || mapping.getTriggerValueMap().get("data1") == null)
-					&& (Objects.equals(mapping.getTriggerValueMap().get("data2"), data2) || mapping.getTriggerValueMap().get("data2") == null)) {
-				log.info("Trigger Mapping [" + mapping + "]");
-				try {
-					if (mapping.getProcessorMethodArguments() != null) {
-						List<Class<?>> argumentClasses = FluentIterable.from(mapping.getProcessorMethodArguments())
-								.transform(new Function<MappingMethodArgument, Class<?>>() {
-									@Override
-									public Class<?> apply(MappingMethodArgument input) {
-										try {
-											return Class.forName(input.getType());
-										} catch (ClassNotFoundException e) {
-											return null;
-										}
-									}
-								}).toList();
-						Map<String, Object> values = new HashMap<>();
-						values.put("command", command);
-						values.put("channel", channel);
-						values.put("data1", data1);
-						values.put("data2", data2);
-						List<Object> argumentValues = FluentIterable.from(mapping.getProcessorMethodArguments())
-								.transform(new Function<MappingMethodArgument, Object>() {
-									@Override
-									public Object apply(MappingMethodArgument input) {
-										String expression = mapping.getValueExpressionMap().get(input.getName());
-										for (String key : values.keySet()) {
-											ControlHandler.this.evaluator
-													.putVariable(key, values.get(key).toString());
-										}
-										try {
-											String response = ControlHandler.this.evaluator.evaluate(expression);
-											if (input.getType() == Long.class.getName())
-												return Double.valueOf(response).longValue();
-											if (input.getType() == Boolean.class.getName())
-												return Double.valueOf(response) > 0;
-											return response;
-										} catch (EvaluationException e) {
-											log.error("Unable to evaluate expression [" + expression + "]", e);
-											return null;
-										}
-									}
-								}).toList();
-						Processor.class.getMethod(mapping.getProcessorMethod(), argumentClasses.toArray(new Class<?>[0])).invoke(
-								this.processor,
-								argumentValues.toArray());
-					} else {
-						Processor.class.getMethod(mapping.getProcessorMethod()).invoke(this.processor);
-					}
-				} catch (IllegalAccessException | IllegalArgumentException | InvocationTargetException | NoSuchMethodException
-						| SecurityException e) {
-					log.error("Unable to trigger processor method [" + mapping.getProcessorMethod() + "]", e);
+		for (CompiledMapping mapping : this.getMappingTable().get(command, channel, data1)) {
+			if (mapping.matches(command, channel, data1, data2)) {
+				if (log.isDebugEnabled()) {
+					log.debug("Trigger Mapping [" + mapping + "]");
+				}
+				mapping.invoke(command, channel, data1, data2);
+			}
+		}
+	}
+
+	private MappingTable getMappingTable() {
+		List<Mapping> mappings = this.dataStore.getMappings();
+		MappingTable mappingTable = this.mappingTable;
+		if (mappingTable == null || !mappingTable.isCompiledFrom(mappings)) {
+			synchronized (this) {
+				mappingTable = this.mappingTable;
+				if (mappingTable == null || !mappingTable.isCompiledFrom(mappings)) {
+					mappingTable = MappingTable.compile(mappings, this.processor);
+					this.mappingTable = mappingTable;
 				}
 			}
 		}
+		return mappingTable;
 	}
 }
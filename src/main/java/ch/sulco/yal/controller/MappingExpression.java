@@ -0,0 +1,11 @@
+package ch.sulco.yal.controller;
+
+/**
+ * Precompiled mapping value expression. Booleans evaluate to 1 or 0, as
+ * they do in jeval.
+ */
+@FunctionalInterface
+public interface MappingExpression {
+
+	double evaluate(int command, int channel, int data1, int data2);
+}
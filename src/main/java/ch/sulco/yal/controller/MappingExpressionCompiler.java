@@ -0,0 +1,192 @@
+package ch.sulco.yal.controller;
+
+import java.util.function.DoubleBinaryOperator;
+
+/**
+ * Compiles the arithmetic and comparison subset of jeval used by mappings,
+ * e.g. {@code #{data1} - 64} or {@code #{data2} > 0}, into a tree of
+ * lambdas. Anything else is rejected with an IllegalArgumentException.
+ */
+public final class MappingExpressionCompiler {
+
+	private final String expression;
+	private int position;
+
+	private MappingExpressionCompiler(String expression) {
+		this.expression = expression;
+	}
+
+	public static MappingExpression compile(String expression) {
+		MappingExpressionCompiler compiler = new MappingExpressionCompiler(expression);
+		MappingExpression result = compiler.parseOr();
+		compiler.skipWhitespace();
+		if (compiler.position != expression.length()) {
+			throw compiler.error();
+		}
+		return result;
+	}
+
+	private MappingExpression parseOr() {
+		MappingExpression left = this.parseAnd();
+		while (this.consume("||")) {
+			MappingExpression l = left;
+			MappingExpression r = this.parseAnd();
+			left = (command, channel, data1, data2) -> l.evaluate(command, channel, data1, data2) != 0
+					|| r.evaluate(command, channel, data1, data2) != 0 ? 1 : 0;
+		}
+		return left;
+	}
+
+	private MappingExpression parseAnd() {
+		MappingExpression left = this.parseEquality();
+		while (this.consume("&&")) {
+			MappingExpression l = left;
+			MappingExpression r = this.parseEquality();
+			left = (command, channel, data1, data2) -> l.evaluate(command, channel, data1, data2) != 0
+					&& r.evaluate(command, channel, data1, data2) != 0 ? 1 : 0;
+		}
+		return left;
+	}
+
+	private MappingExpression parseEquality() {
+		MappingExpression left = this.parseRelational();
+		while (true) {
+			if (this.consume("==")) {
+				left = binary(left, this.parseRelational(), (a, b) -> a == b ? 1 : 0);
+			} else if (this.consume("!=")) {
+				left = binary(left, this.parseRelational(), (a, b) -> a != b ? 1 : 0);
+			} else {
+				return left;
+			}
+		}
+	}
+
+	private MappingExpression parseRelational() {
+		MappingExpression left = this.parseAdditive();
+		while (true) {
+			if (this.consume("<=")) {
+				left = binary(left, this.parseAdditive(), (a, b) -> a <= b ? 1 : 0);
+			} else if (this.consume(">=")) {
+				left = binary(left, this.parseAdditive(), (a, b) -> a >= b ? 1 : 0);
+			} else if (this.consume("<")) {
+				left = binary(left, this.parseAdditive(), (a, b) -> a < b ? 1 : 0);
+			} else if (this.consume(">")) {
+				left = binary(left, this.parseAdditive(), (a, b) -> a > b ? 1 : 0);
+			} else {
+				return left;
+			}
+		}
+	}
+
+	private MappingExpression parseAdditive() {
+		MappingExpression left = this.parseMultiplicative();
+		while (true) {
+			if (this.consume("+")) {
+				left = binary(left, this.parseMultiplicative(), (a, b) -> a + b);
+			} else if (this.consume("-")) {
+				left = binary(left, this.parseMultiplicative(), (a, b) -> a - b);
+			} else {
+				return left;
+			}
+		}
+	}
+
+	private MappingExpression parseMultiplicative() {
+		MappingExpression left = this.parseUnary();
+		while (true) {
+			if (this.consume("*")) {
+				left = binary(left, this.parseUnary(), (a, b) -> a * b);
+			} else if (this.consume("/")) {
+				left = binary(left, this.parseUnary(), (a, b) -> a / b);
+			} else if (this.consume("%")) {
+				left = binary(left, this.parseUnary(), (a, b) -> a % b);
+			} else {
+				return left;
+			}
+		}
+	}
+
+	private MappingExpression parseUnary() {
+		if (this.consume("-")) {
+			MappingExpression operand = this.parseUnary();
+			return (command, channel, data1, data2) -> -operand.evaluate(command, channel, data1, data2);
+		}
+		if (this.consume("!")) {
+			MappingExpression operand = this.parseUnary();
+			return (command, channel, data1, data2) -> operand.evaluate(command, channel, data1, data2) == 0 ? 1 : 0;
+		}
+		if (this.consume("+")) {
+			return this.parseUnary();
+		}
+		return this.parsePrimary();
+	}
+
+	private MappingExpression parsePrimary() {
+		if (this.consume("(")) {
+			MappingExpression inner = this.parseOr();
+			if (!this.consume(")")) {
+				throw this.error();
+			}
+			return inner;
+		}
+		if (this.consume("#{")) {
+			int end = this.expression.indexOf('}', this.position);
+			if (end < 0) {
+				throw this.error();
+			}
+			String name = this.expression.substring(this.position, end).trim();
+			this.position = end + 1;
+			return variable(name);
+		}
+		int start = this.position;
+		while (this.position < this.expression.length()
+				&& (Character.isDigit(this.expression.charAt(this.position)) || this.expression.charAt(this.position) == '.')) {
+			this.position++;
+		}
+		if (start == this.position) {
+			throw this.error();
+		}
+		double value = Double.parseDouble(this.expression.substring(start, this.position));
+		return (command, channel, data1, data2) -> value;
+	}
+
+	private MappingExpression variable(String name) {
+		switch (name) {
+		case "command":
+			return (command, channel, data1, data2) -> command;
+		case "channel":
+			return (command, channel, data1, data2) -> channel;
+		case "data1":
+			return (command, channel, data1, data2) -> data1;
+		case "data2":
+			return (command, channel, data1, data2) -> data2;
+		default:
+			throw new IllegalArgumentException("Unknown variable [" + name + "] in expression [" + this.expression + "]");
+		}
+	}
+
+	private static MappingExpression binary(MappingExpression left, MappingExpression right, DoubleBinaryOperator operator) {
+		return (command, channel, data1, data2) -> operator.applyAsDouble(
+				left.evaluate(command, channel, data1, data2),
+				right.evaluate(command, channel, data1, data2));
+	}
+
+	private boolean consume(String token) {
+		this.skipWhitespace();
+		if (this.expression.startsWith(token, this.position)) {
+			this.position += token.length();
+			return true;
+		}
+		return false;
+	}
+
+	private void skipWhitespace() {
+		while (this.position < this.expression.length() && Character.isWhitespace(this.expression.charAt(this.position))) {
+			this.position++;
+		}
+	}
+
+	private IllegalArgumentException error() {
+		return new IllegalArgumentException("Unsupported expression [" + this.expression + "] at " + this.position);
+	}
+}
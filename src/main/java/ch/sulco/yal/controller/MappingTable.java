@@ -0,0 +1,106 @@
+package ch.sulco.yal.controller;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import ch.sulco.yal.dm.Mapping;
+import ch.sulco.yal.dm.MappingMethodArgument;
+import ch.sulco.yal.dsp.audio.Processor;
+
+/**
+ * Dispatch table of compiled mappings indexed by the command nibble, channel
+ * and data1 of a message. Wildcard triggers are expanded into every slot
+ * they cover, so a lookup is a single array access.
+ */
+public class MappingTable {
+	private final static Logger log = LoggerFactory.getLogger(MappingTable.class);
+
+	private static final CompiledMapping[] NO_MAPPINGS = new CompiledMapping[0];
+
+	private static final int COMMANDS = 16;
+	private static final int CHANNELS = 16;
+	private static final int DATA_VALUES = 128;
+
+	private final List<Mapping> source;
+	private final int sourceHash;
+	private final CompiledMapping[][] slots = new CompiledMapping[COMMANDS * CHANNELS * DATA_VALUES][];
+
+	private MappingTable(List<Mapping> source) {
+		this.source = source;
+		this.sourceHash = contentHash(source);
+		Arrays.fill(this.slots, NO_MAPPINGS);
+	}
+
+	public static MappingTable compile(List<Mapping> mappings, Processor processor) {
+		MappingTable mappingTable = new MappingTable(mappings);
+		for (Mapping mapping : mappings) {
+			try {
+				mappingTable.add(new CompiledMapping(mapping, processor));
+			} catch (ReflectiveOperationException | RuntimeException e) {
+				log.error("Unable to compile mapping [" + mapping.getProcessorMethod() + "]", e);
+			}
+		}
+		log.info("Compiled " + mappings.size() + " mappings");
+		return mappingTable;
+	}
+
+	/**
+	 * @return false if {@code mappings} is another list or a mapping in it was
+	 *         added, removed or edited since compiling
+	 */
+	public boolean isCompiledFrom(List<Mapping> mappings) {
+		return this.source == mappings && this.sourceHash == contentHash(mappings);
+	}
+
+	public CompiledMapping[] get(int command, int channel, int data1) {
+		return this.slots[index(command, channel, data1)];
+	}
+
+	private void add(CompiledMapping mapping) {
+		for (int command = 0; command < COMMANDS; command++) {
+			if (mapping.getCommand() != CompiledMapping.ANY && command != commandIndex(mapping.getCommand())) {
+				continue;
+			}
+			for (int channel = 0; channel < CHANNELS; channel++) {
+				if (mapping.getChannel() != CompiledMapping.ANY && channel != (mapping.getChannel() & 0xF)) {
+					continue;
+				}
+				for (int data1 = 0; data1 < DATA_VALUES; data1++) {
+					if (mapping.getData1() != CompiledMapping.ANY && data1 != (mapping.getData1() & 0x7F)) {
+						continue;
+					}
+					int index = (command * CHANNELS + channel) * DATA_VALUES + data1;
+					CompiledMapping[] slot = Arrays.copyOf(this.slots[index], this.slots[index].length + 1);
+					slot[slot.length - 1] = mapping;
+					this.slots[index] = slot;
+				}
+			}
+		}
+	}
+
+	private static int contentHash(List<Mapping> mappings) {
+		int hash = 1;
+		for (Mapping mapping : mappings) {
+			hash = 31 * hash + Objects.hash(mapping.getSource(), mapping.getProcessorMethod(),
+					mapping.getTriggerValueMap(), mapping.getValueExpressionMap());
+			if (mapping.getProcessorMethodArguments() != null) {
+				for (MappingMethodArgument argument : mapping.getProcessorMethodArguments()) {
+					hash = 31 * hash + Objects.hash(argument.getName(), argument.getType());
+				}
+			}
+		}
+		return hash;
+	}
+
+	private static int commandIndex(int command) {
+		return command >> 4 & 0xF;
+	}
+
+	private static int index(int command, int channel, int data1) {
+		return (commandIndex(command) * CHANNELS + (channel & 0xF)) * DATA_VALUES + (data1 & 0x7F);
+	}
+}
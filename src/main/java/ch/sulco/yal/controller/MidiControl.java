@@ -31,10 +31,11 @@ public class MidiControl {
 	private DataStore dataStore;
 
 	@Inject
-	private ControlHandler controlHandler;
+	private MidiDispatcher midiDispatcher;
 
 	@PostConstruct
 	public void setup() {
+		this.midiDispatcher.start();
 		MidiDevice device;
 		MidiDevice.Info[] infos = MidiSystem.getMidiDeviceInfo();
 		for (int i = 0; i < infos.length; i++) {
@@ -46,7 +47,7 @@ public class MidiControl {
 					transmitters.get(j).setReceiver(new Receiver() {
 						@Override
 						public void send(MidiMessage message, long timeStamp) {
-							MidiControl.this.handleMidiMessage(message);
+							MidiControl.this.handleMidiMessage(message, timeStamp);
 						}
 
 						@Override
@@ -59,7 +60,7 @@ public class MidiControl {
 				trans.setReceiver(new Receiver() {
 					@Override
 					public void send(MidiMessage message, long timeStamp) {
-						MidiControl.this.handleMidiMessage(message);
+						MidiControl.this.handleMidiMessage(message, timeStamp);
 					}
 
 					@Override
@@ -83,16 +84,9 @@ public class MidiControl {
 		}
 	}
 
-	private void handleMidiMessage(MidiMessage message) {
+	private void handleMidiMessage(MidiMessage message, long timeStamp) {
 		if (message instanceof ShortMessage) {
-			ShortMessage m = (ShortMessage) message;
-			log.info("new message channel=" + m.getChannel()
-					+ ", status=" + m.getStatus()
-					+ ", command=" + m.getCommand()
-					+ ", data1=" + m.getData1()
-					+ ", data2=" + m.getData2()
-					+ ", length=" + m.getLength());
-			this.controlHandler.handleMessage(m.getCommand(), m.getChannel(), m.getData1(), m.getData2());
+			this.midiDispatcher.submit((ShortMessage) message, timeStamp);
 		}
 	}
 
@@ -0,0 +1,106 @@
+package ch.sulco.yal.controller;
+
+import java.util.concurrent.locks.LockSupport;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import javax.sound.midi.ShortMessage;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Moves controller work off the MIDI receiver threads. Receivers only copy
+ * the message into the input queue; a dedicated thread hands it to the
+ * {@link ControlHandler} and records how long it waited.
+ */
+@Singleton
+public class MidiDispatcher implements MidiInputQueue.Handler {
+	private final static Logger log = LoggerFactory.getLogger(MidiDispatcher.class);
+
+	private static final int QUEUE_CAPACITY = 1024;
+
+	@Inject
+	private ControlHandler controlHandler;
+
+	private final MidiInputQueue queue = new MidiInputQueue(QUEUE_CAPACITY);
+	private Thread dispatchThread;
+
+	private volatile int maxQueueDepth;
+	private volatile long dispatched;
+	private volatile long totalLatencyNanos;
+	private volatile long lastLatencyNanos;
+	private volatile long maxLatencyNanos;
+	private volatile long lastDeviceTimeStamp;
+
+	public synchronized void start() {
+		if (this.dispatchThread == null) {
+			this.dispatchThread = new Thread(this::dispatch, "MidiDispatcher");
+			this.dispatchThread.setDaemon(true);
+			this.dispatchThread.setPriority(Thread.MAX_PRIORITY);
+			this.dispatchThread.start();
+		}
+	}
+
+	public void submit(ShortMessage message, long timeStamp) {
+		if (this.queue.offer(message.getCommand(), message.getChannel(), message.getData1(), message.getData2(), timeStamp)) {
+			LockSupport.unpark(this.dispatchThread);
+		} else {
+			log.warn("MIDI input queue full, message dropped [dropped=" + this.queue.getDroppedCount() + "]");
+		}
+	}
+
+	private void dispatch() {
+		log.info("Start dispatching MIDI messages...");
+		while (!Thread.currentThread().isInterrupted()) {
+			int depth = this.queue.size();
+			if (depth > this.maxQueueDepth) {
+				this.maxQueueDepth = depth;
+			}
+			if (!this.queue.poll(this)) {
+				LockSupport.park(this);
+			}
+		}
+		log.info("Stop dispatching MIDI messages...");
+	}
+
+	@Override
+	public void handle(int command, int channel, int data1, int data2, long timeStamp, long receivedNanos) {
+		long latency = System.nanoTime() - receivedNanos;
+		this.lastLatencyNanos = latency;
+		if (latency > this.maxLatencyNanos) {
+			this.maxLatencyNanos = latency;
+		}
+		this.totalLatencyNanos += latency;
+		this.lastDeviceTimeStamp = timeStamp;
+		this.dispatched++;
+		if (log.isDebugEnabled()) {
+			log.debug("new message channel=" + channel
+					+ ", command=" + command
+					+ ", data1=" + data1
+					+ ", data2=" + data2
+					+ ", timeStamp=" + timeStamp
+					+ ", latency=" + latency / 1000 + "us");
+		}
+		try {
+			this.controlHandler.handleMessage(command, channel, data1, data2);
+		} catch (RuntimeException e) {
+			log.error("Unable to handle MIDI message [command=" + command + "][data1=" + data1 + "]", e);
+		}
+	}
+
+	public MidiMetrics getMetrics() {
+		MidiMetrics metrics = new MidiMetrics();
+		long dispatched = this.dispatched;
+		metrics.setQueueCapacity(this.queue.getCapacity());
+		metrics.setQueueDepth(this.queue.size());
+		metrics.setMaxQueueDepth(this.maxQueueDepth);
+		metrics.setDispatched(dispatched);
+		metrics.setDropped(this.queue.getDroppedCount());
+		metrics.setLastLatencyMicros(this.lastLatencyNanos / 1000);
+		metrics.setMeanLatencyMicros(dispatched == 0 ? 0 : this.totalLatencyNanos / dispatched / 1000);
+		metrics.setMaxLatencyMicros(this.maxLatencyNanos / 1000);
+		metrics.setLastDeviceTimeStamp(this.lastDeviceTimeStamp);
+		return metrics;
+	}
+}
@@ -0,0 +1,94 @@
+package ch.sulco.yal.controller;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Bounded multi-producer, single-consumer queue of short MIDI messages held
+ * in preallocated primitive arrays. Producers never block: when the queue is
+ * full the message is dropped and counted.
+ */
+public class MidiInputQueue {
+
+	public interface Handler {
+		void handle(int command, int channel, int data1, int data2, long timeStamp, long receivedNanos);
+	}
+
+	private final int mask;
+	private final AtomicLongArray sequences;
+	private final int[] messages;
+	private final long[] timeStamps;
+	private final long[] receivedNanos;
+	private final AtomicLong tail = new AtomicLong();
+	private final AtomicLong head = new AtomicLong();
+	private final AtomicLong dropped = new AtomicLong();
+
+	public MidiInputQueue(int capacity) {
+		if (capacity <= 0 || Integer.bitCount(capacity) != 1) {
+			throw new IllegalArgumentException("Capacity must be a power of two [" + capacity + "]");
+		}
+		this.mask = capacity - 1;
+		this.sequences = new AtomicLongArray(capacity);
+		for (int i = 0; i < capacity; i++) {
+			this.sequences.set(i, i);
+		}
+		this.messages = new int[capacity];
+		this.timeStamps = new long[capacity];
+		this.receivedNanos = new long[capacity];
+	}
+
+	public int getCapacity() {
+		return this.messages.length;
+	}
+
+	public int size() {
+		return (int) Math.max(0, this.tail.get() - this.head.get());
+	}
+
+	public long getDroppedCount() {
+		return this.dropped.get();
+	}
+
+	public boolean offer(int command, int channel, int data1, int data2, long timeStamp) {
+		long receivedNanos = System.nanoTime();
+		long position = this.tail.get();
+		while (true) {
+			int index = (int) (position & this.mask);
+			long difference = this.sequences.get(index) - position;
+			if (difference == 0) {
+				if (this.tail.compareAndSet(position, position + 1)) {
+					this.messages[index] = (command & 0xFF) << 24 | (channel & 0xFF) << 16 | (data1 & 0xFF) << 8 | data2 & 0xFF;
+					this.timeStamps[index] = timeStamp;
+					this.receivedNanos[index] = receivedNanos;
+					this.sequences.lazySet(index, position + 1);
+					return true;
+				}
+				position = this.tail.get();
+			} else if (difference < 0) {
+				this.dropped.incrementAndGet();
+				return false;
+			} else {
+				position = this.tail.get();
+			}
+		}
+	}
+
+	/**
+	 * Hands the oldest message to the handler. Must only be called from the
+	 * consumer thread.
+	 */
+	public boolean poll(Handler handler) {
+		long position = this.head.get();
+		int index = (int) (position & this.mask);
+		if (this.sequences.get(index) != position + 1) {
+			return false;
+		}
+		int message = this.messages[index];
+		long timeStamp = this.timeStamps[index];
+		long receivedNanos = this.receivedNanos[index];
+		this.sequences.lazySet(index, position + this.messages.length);
+		this.head.lazySet(position + 1);
+		handler.handle(message >>> 24, message >> 16 & 0xFF, message >> 8 & 0xFF, message & 0xFF, timeStamp, receivedNanos);
+		return true;
+	}
+}
@@ -0,0 +1,85 @@
+package ch.sulco.yal.controller;
+
+public class MidiMetrics {
+	private int queueCapacity;
+	private int queueDepth;
+	private int maxQueueDepth;
+	private long dispatched;
+	private long dropped;
+	private long lastLatencyMicros;
+	private long meanLatencyMicros;
+	private long maxLatencyMicros;
+	private long lastDeviceTimeStamp;
+
+	public int getQueueCapacity() {
+		return this.queueCapacity;
+	}
+
+	public void setQueueCapacity(int queueCapacity) {
+		this.queueCapacity = queueCapacity;
+	}
+
+	public int getQueueDepth() {
+		return this.queueDepth;
+	}
+
+	public void setQueueDepth(int queueDepth) {
+		this.queueDepth = queueDepth;
+	}
+
+	public int getMaxQueueDepth() {
+		return this.maxQueueDepth;
+	}
+
+	public void setMaxQueueDepth(int maxQueueDepth) {
+		this.maxQueueDepth = maxQueueDepth;
+	}
+
+	public long getDispatched() {
+		return this.dispatched;
+	}
+
+	public void setDispatched(long dispatched) {
+		this.dispatched = dispatched;
+	}
+
+	public long getDropped() {
+		return this.dropped;
+	}
+
+	public void setDropped(long dropped) {
+		this.dropped = dropped;
+	}
+
+	public long getLastLatencyMicros() {
+		return this.lastLatencyMicros;
+	}
+
+	public void setLastLatencyMicros(long lastLatencyMicros) {
+		this.lastLatencyMicros = lastLatencyMicros;
+	}
+
+	public long getMeanLatencyMicros() {
+		return this.meanLatencyMicros;
+	}
+
+	public void setMeanLatencyMicros(long meanLatencyMicros) {
+		this.meanLatencyMicros = meanLatencyMicros;
+	}
+
+	public long getMaxLatencyMicros() {
+		return this.maxLatencyMicros;
+	}
+
+	public void setMaxLatencyMicros(long maxLatencyMicros) {
+		this.maxLatencyMicros = maxLatencyMicros;
+	}
+
+	public long getLastDeviceTimeStamp() {
+		return this.lastDeviceTimeStamp;
+	}
+
+	public void setLastDeviceTimeStamp(long lastDeviceTimeStamp) {
+		this.lastDeviceTimeStamp = lastDeviceTimeStamp;
+	}
+}
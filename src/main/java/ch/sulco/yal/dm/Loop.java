@@ -1,6 +1,7 @@
 package ch.sulco.yal.dm;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Objects;
 
@@ -11,13 +12,13 @@ public class Loop {
 
 	private Long id;
 	private String name;
-	private List<Sample> samples = new ArrayList<>();
+	// copied on every change so readers never see it move
+	private volatile List<Sample> samples = Collections.emptyList();
 	private Long timeLength = 0L;
 	private Long position = 0L;
 	private int dataLength = 0;
 	private boolean active;
 
-	private transient Sample clickTrack;
 	private Integer bars = 1;
 	private Integer beats = 4;
 	private boolean clickTrackMuted;
@@ -50,17 +51,27 @@ public class Loop {
 		return Long.valueOf(this.samples.size());
 	}
 
-	public void addSample(Sample sample) {
-		this.samples.add(sample);
+	public synchronized void addSample(Sample sample) {
+		List<Sample> samples = new ArrayList<>(this.samples);
+		samples.add(sample);
+		this.samples = Collections.unmodifiableList(samples);
 	}
 
-	public void updateSample(Sample sample) {
+	public synchronized void updateSample(Sample sample) {
 		if (samples.stream().anyMatch(s -> Objects.equals(s.getId(), sample.getId()))) {
+			List<Sample> samples = new ArrayList<>(this.samples);
 			samples.removeIf(s -> Objects.equals(s.getId(), sample.getId()));
 			samples.add(sample);
+			this.samples = Collections.unmodifiableList(samples);
 		}
 	}
 
+	public synchronized void removeSample(long sampleId) {
+		List<Sample> samples = new ArrayList<>(this.samples);
+		samples.removeIf(s -> Objects.equals(s.getId(), sampleId));
+		this.samples = Collections.unmodifiableList(samples);
+	}
+
 	public List<Sample> getSamples() {
 		return this.samples;
 	}
@@ -69,7 +80,7 @@ public class Loop {
 		return FluentIterable.from(this.samples).firstMatch(new Predicate<Sample>() {
 			@Override
 			public boolean apply(Sample input) {
-				return input.getId() == sampleId;
+				return Objects.equals(input.getId(), sampleId);
 			}
 		}).orNull();
 	}
@@ -106,14 +117,6 @@ public class Loop {
 		this.active = active;
 	}
 
-	public Sample getClickTrack() {
-		return clickTrack;
-	}
-
-	public void setClickTrack(Sample clickTrack) {
-		this.clickTrack = clickTrack;
-	}
-
 	public Integer getBars() {
 		return bars;
 	}
@@ -0,0 +1,182 @@
+package ch.sulco.yal.dm;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.ShortBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import javax.sound.sampled.AudioFormat;
+
+/**
+ * Interleaved little-endian PCM audio, backed by a heap, direct or mapped
+ * {@link ByteBuffer}. Typed access goes through views created once, so
+ * readers can loop over primitives without decoding bytes.
+ */
+public class PcmBuffer {
+
+	private final ByteBuffer data;
+	private final int channels;
+	private final SampleFormat format;
+	private final int frameCount;
+	private final ShortBuffer shorts;
+	private final FloatBuffer floats;
+	private final MappedByteBuffer mapping;
+	private final Path file;
+
+	private PcmBuffer(ByteBuffer data, int channels, SampleFormat format) {
+		this(data, channels, format, null, null);
+	}
+
+	private PcmBuffer(ByteBuffer data, int channels, SampleFormat format, MappedByteBuffer mapping, Path file) {
+		int frameSize = channels * format.getBytesPerSample();
+		this.frameCount = data.remaining() / frameSize;
+		ByteBuffer slice = data.slice();
+		slice.limit(this.frameCount * frameSize);
+		this.data = slice.order(ByteOrder.LITTLE_ENDIAN);
+		this.channels = channels;
+		this.format = format;
+		this.shorts = format == SampleFormat.PCM_SIGNED_16 ? this.data.asShortBuffer() : null;
+		this.floats = format == SampleFormat.PCM_FLOAT_32 ? this.data.asFloatBuffer() : null;
+		this.mapping = mapping;
+		this.file = file;
+	}
+
+	public static PcmBuffer map(Path file, AudioFormat audioFormat) throws IOException {
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			MappedByteBuffer mapping = channel.map(MapMode.READ_ONLY, 0, channel.size());
+			return new PcmBuffer(mapping, audioFormat.getChannels(), SampleFormat.of(audioFormat), mapping, file);
+		}
+	}
+
+	public static PcmBuffer allocate(int frames, int channels, SampleFormat format) {
+		return new PcmBuffer(ByteBuffer.allocate(frames * channels * format.getBytesPerSample()), channels, format);
+	}
+
+	public static PcmBuffer allocateDirect(int frames, int channels, SampleFormat format) {
+		return new PcmBuffer(ByteBuffer.allocateDirect(frames * channels * format.getBytesPerSample()), channels, format);
+	}
+
+	public static PcmBuffer allocate(int frames, AudioFormat audioFormat) {
+		return allocate(frames, audioFormat.getChannels(), SampleFormat.of(audioFormat));
+	}
+
+	public static PcmBuffer wrap(ByteBuffer data, int channels, SampleFormat format) {
+		return new PcmBuffer(data, channels, format);
+	}
+
+	public static PcmBuffer wrap(ByteBuffer data, AudioFormat audioFormat) {
+		return new PcmBuffer(data, audioFormat.getChannels(), SampleFormat.of(audioFormat));
+	}
+
+	public static PcmBuffer wrap(byte[] data, AudioFormat audioFormat) {
+		return wrap(ByteBuffer.wrap(data), audioFormat);
+	}
+
+	public int getFrameCount() {
+		return this.frameCount;
+	}
+
+	public int getChannels() {
+		return this.channels;
+	}
+
+	public SampleFormat getFormat() {
+		return this.format;
+	}
+
+	public int getFrameSize() {
+		return this.channels * this.format.getBytesPerSample();
+	}
+
+	public int getByteLength() {
+		return this.data.limit();
+	}
+
+	public boolean isDirect() {
+		return this.data.isDirect();
+	}
+
+	public Path getFile() {
+		return this.file;
+	}
+
+	public void prefetch() {
+		if (this.mapping != null) {
+			this.mapping.load();
+		}
+	}
+
+	public short getShort(int frame, int channel) {
+		int index = frame * this.channels + channel;
+		if (this.shorts != null) {
+			return this.shorts.get(index);
+		}
+		return (short) Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, Math.round(this.floats.get(index) * 32768f)));
+	}
+
+	public float getFloat(int frame, int channel) {
+		int index = frame * this.channels + channel;
+		if (this.shorts != null) {
+			return this.shorts.get(index) / 32768f;
+		}
+		return this.floats.get(index);
+	}
+
+	public void setShort(int frame, int channel, short value) {
+		int index = frame * this.channels + channel;
+		if (this.shorts != null) {
+			this.shorts.put(index, value);
+		} else {
+			this.floats.put(index, value / 32768f);
+		}
+	}
+
+	public void setFloat(int frame, int channel, float value) {
+		int index = frame * this.channels + channel;
+		if (this.shorts != null) {
+			this.shorts.put(index, (short) Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, Math.round(value * 32768f))));
+		} else {
+			this.floats.put(index, value);
+		}
+	}
+
+	public ShortBuffer asShortBuffer() {
+		if (this.shorts == null) {
+			throw new UnsupportedOperationException("Not a 16 bit buffer [" + this.format + "]");
+		}
+		return this.shorts.duplicate();
+	}
+
+	public FloatBuffer asFloatBuffer() {
+		if (this.floats == null) {
+			throw new UnsupportedOperationException("Not a float buffer [" + this.format + "]");
+		}
+		return this.floats.duplicate();
+	}
+
+	public ByteBuffer asByteBuffer() {
+		return this.data.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+	}
+
+	public PcmBuffer slice(int fromFrame, int frames) {
+		ByteBuffer slice = this.data.duplicate();
+		slice.position(fromFrame * this.getFrameSize());
+		slice.limit((fromFrame + frames) * this.getFrameSize());
+		return new PcmBuffer(slice, this.channels, this.format);
+	}
+
+	public PcmBuffer copyOf(int frames) {
+		PcmBuffer copy = allocate(frames, this.channels, this.format);
+		ByteBuffer source = this.data.duplicate();
+		source.limit(Math.min(frames, this.frameCount) * this.getFrameSize());
+		copy.data.put(source);
+		copy.data.clear();
+		return copy;
+	}
+}
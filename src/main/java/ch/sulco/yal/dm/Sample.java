@@ -6,8 +6,9 @@ public class Sample {
 	private Float gain;
 	private Long channelId;
 	private boolean mute = true;
+	private volatile boolean loading;
 
-	private transient byte[] data;
+	private transient volatile PcmBuffer data;
 
 	public Sample() {
 
@@ -57,11 +58,19 @@ public class Sample {
 		this.channelId = channelId;
 	}
 
-	public byte[] getData() {
+	public boolean isLoading() {
+		return this.loading;
+	}
+
+	public void setLoading(boolean loading) {
+		this.loading = loading;
+	}
+
+	public PcmBuffer getData() {
 		return this.data;
 	}
 
-	public void setData(byte[] data) {
+	public void setData(PcmBuffer data) {
 		this.data = data;
 	}
 }
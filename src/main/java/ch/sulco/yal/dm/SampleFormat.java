@@ -0,0 +1,28 @@
+package ch.sulco.yal.dm;
+
+import javax.sound.sampled.AudioFormat;
+
+public enum SampleFormat {
+	PCM_SIGNED_16(2),
+	PCM_FLOAT_32(4);
+
+	private final int bytesPerSample;
+
+	private SampleFormat(int bytesPerSample) {
+		this.bytesPerSample = bytesPerSample;
+	}
+
+	public int getBytesPerSample() {
+		return this.bytesPerSample;
+	}
+
+	public static SampleFormat of(AudioFormat audioFormat) {
+		if (AudioFormat.Encoding.PCM_SIGNED.equals(audioFormat.getEncoding()) && audioFormat.getSampleSizeInBits() == 16) {
+			return PCM_SIGNED_16;
+		}
+		if (AudioFormat.Encoding.PCM_FLOAT.equals(audioFormat.getEncoding()) && audioFormat.getSampleSizeInBits() == 32) {
+			return PCM_FLOAT_32;
+		}
+		throw new IllegalArgumentException("Unsupported audio format [" + audioFormat + "]");
+	}
+}
@@ -0,0 +1,103 @@
+package ch.sulco.yal.dsp;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Bounded lock-free queue on a preallocated ring. Producers never block,
+ * when the queue is full the {@link OverflowPolicy} decides which event is
+ * dropped.
+ */
+public class BoundedEventQueue<T> {
+
+	private final int mask;
+	private final OverflowPolicy overflowPolicy;
+	private final AtomicLongArray sequences;
+	private final AtomicReferenceArray<T> elements;
+	private final AtomicLong tail = new AtomicLong();
+	private final AtomicLong head = new AtomicLong();
+	private final AtomicLong dropped = new AtomicLong();
+
+	public BoundedEventQueue(int capacity, OverflowPolicy overflowPolicy) {
+		if (capacity <= 0 || Integer.bitCount(capacity) != 1) {
+			throw new IllegalArgumentException("Capacity must be a power of two [" + capacity + "]");
+		}
+		this.mask = capacity - 1;
+		this.overflowPolicy = overflowPolicy;
+		this.sequences = new AtomicLongArray(capacity);
+		for (int i = 0; i < capacity; i++) {
+			this.sequences.set(i, i);
+		}
+		this.elements = new AtomicReferenceArray<>(capacity);
+	}
+
+	public int getCapacity() {
+		return this.elements.length();
+	}
+
+	public int size() {
+		return (int) Math.max(0, this.tail.get() - this.head.get());
+	}
+
+	public long getDroppedCount() {
+		return this.dropped.get();
+	}
+
+	/**
+	 * @return false if an event, the given one or an older one, was dropped
+	 */
+	public boolean offer(T element) {
+		boolean complete = true;
+		while (!this.tryOffer(element)) {
+			this.dropped.incrementAndGet();
+			complete = false;
+			if (this.overflowPolicy == OverflowPolicy.DROP_NEWEST) {
+				return false;
+			}
+			this.poll();
+		}
+		return complete;
+	}
+
+	public T poll() {
+		long position = this.head.get();
+		while (true) {
+			int index = (int) (position & this.mask);
+			long difference = this.sequences.get(index) - (position + 1);
+			if (difference == 0) {
+				if (this.head.compareAndSet(position, position + 1)) {
+					T element = this.elements.get(index);
+					this.elements.lazySet(index, null);
+					this.sequences.lazySet(index, position + this.elements.length());
+					return element;
+				}
+				position = this.head.get();
+			} else if (difference < 0) {
+				return null;
+			} else {
+				position = this.head.get();
+			}
+		}
+	}
+
+	private boolean tryOffer(T element) {
+		long position = this.tail.get();
+		while (true) {
+			int index = (int) (position & this.mask);
+			long difference = this.sequences.get(index) - position;
+			if (difference == 0) {
+				if (this.tail.compareAndSet(position, position + 1)) {
+					this.elements.lazySet(index, element);
+					this.sequences.lazySet(index, position + 1);
+					return true;
+				}
+				position = this.tail.get();
+			} else if (difference < 0) {
+				return false;
+			} else {
+				position = this.tail.get();
+			}
+		}
+	}
+}
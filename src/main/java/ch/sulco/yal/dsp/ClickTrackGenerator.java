@@ -1,7 +1,5 @@
 package ch.sulco.yal.dsp;
 
-import java.util.Arrays;
-
 import javax.annotation.PostConstruct;
 import javax.inject.Inject;
 import javax.inject.Singleton;
@@ -9,62 +7,95 @@ import javax.inject.Singleton;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import ch.sulco.yal.dm.Sample;
-import ch.sulco.yal.dm.SpecialSample;
-import ch.sulco.yal.dsp.DataStore.DataEvent;
-import ch.sulco.yal.dsp.DataStore.DataEventListener;
-import ch.sulco.yal.dsp.DataStore.LoopUpdated;
+import ch.sulco.yal.AppConfig;
+import ch.sulco.yal.dm.Loop;
+import ch.sulco.yal.dsp.audio.onboard.Synchronizer;
 
+/**
+ * Mixes a click into the output at the beats of the current loop. The
+ * accented and the normal click are synthesized once; where they go is
+ * worked out per period from the loop position, bars and beats, so the
+ * click needs no loop-sized buffer and follows tempo and meter changes
+ * immediately.
+ */
 @Singleton
-public class ClickTrackGenerator implements DataEventListener {
+public class ClickTrackGenerator {
 
 	private final static Logger log = LoggerFactory.getLogger(ClickTrackGenerator.class);
 
+	private static final double CLICK_SECONDS = 0.015;
+	private static final double ATTACK_SECONDS = 0.0005;
+	private static final double DECAY_SECONDS = 0.003;
+	private static final double ACCENT_FREQUENCY = 2000;
+	private static final double BEAT_FREQUENCY = 1000;
+	private static final float ACCENT_GAIN = 0.6f;
+	private static final float BEAT_GAIN = 0.3f;
+
+	@Inject
+	private AppConfig appConfig;
+
 	@Inject
 	private DataStore dataStore;
 
+	@Inject
+	private Synchronizer synchronizer;
+
+	private float[] accentClick;
+	private float[] beatClick;
+
 	@PostConstruct
 	public void setup() {
-		this.dataStore.addListener(this);
+		this.accentClick = this.synthesize(ACCENT_FREQUENCY, ACCENT_GAIN);
+		this.beatClick = this.synthesize(BEAT_FREQUENCY, BEAT_GAIN);
+		log.info("Clicks synthesized [frames=" + this.accentClick.length + "]");
 	}
 
-	@Override
-	public void onDataEvent(DataEvent event) {
-		if (event instanceof LoopUpdated) {
-			LoopUpdated loopUpdated = (LoopUpdated) event;
-			if (loopUpdated.getLoop().getClickTrack() == null
-					&& loopUpdated.getLoop().getBars() != null
-					&& loopUpdated.getLoop().getBeats() != null
-					&& loopUpdated.getLoop().getDataLength() > 0) {
-				loopUpdated.getLoop().setClickTrack(createClickTrackSample(
-						loopUpdated.getLoop().getBars(),
-						loopUpdated.getLoop().getBeats(),
-						loopUpdated.getLoop().getDataLength()));
-				this.dataStore.updateLoop(loopUpdated.getLoop());
-			}
+	/**
+	 * A sine burst with a short attack, so it starts without a step, and an
+	 * exponential decay.
+	 */
+	private float[] synthesize(double frequency, float gain) {
+		double sampleRate = this.appConfig.getSampleRate();
+		float[] click = new float[(int) (CLICK_SECONDS * sampleRate)];
+		for (int frame = 0; frame < click.length; frame++) {
+			double time = frame / sampleRate;
+			double envelope = Math.min(1, time / ATTACK_SECONDS) * Math.exp(-time / DECAY_SECONDS);
+			click[frame] = (float) (gain * envelope * Math.sin(2 * Math.PI * frequency * time));
 		}
+		return click;
 	}
 
-	private Sample createClickTrackSample(int bars, int beats, int dataLength) {
-		log.info("create ClickTrack [bars=" + bars + "][beats=" + beats + "][dataLength=" + dataLength + "]");
-		Sample clickSample = new Sample();
-		clickSample.setId(SpecialSample.CLICK.getId());
-		clickSample.setChannelId(null);
-		clickSample.setData(createClickTrackData(bars, beats, dataLength));
-		return clickSample;
-	}
-
-	private byte[] createClickTrackData(int bars, int beats, int dataLength) {
-		byte[] clickBytes = new byte[dataLength];
-		Arrays.fill(clickBytes, (byte) 0);
-		int bytesPerBeat = dataLength / (bars * beats);
-		for (int beat = 0; beat < bars * beats; beat++) {
-			if (beat % beats == 0) {
-				Arrays.fill(clickBytes, beat * bytesPerBeat, beat * bytesPerBeat + 100, (byte) 80);
-			} else {
-				Arrays.fill(clickBytes, beat * bytesPerBeat, beat * bytesPerBeat + 100, (byte) 20);
+	/**
+	 * Adds the click for the next {@code frames} frames of the running loop to
+	 * the interleaved {@code mix}; does nothing while the loop is stopped, its
+	 * click is muted or it has no bars and beats.
+	 */
+	public void mix(float[] mix, int frames, int channels) {
+		Loop loop = this.dataStore.getCurrentLoop();
+		long loopFrames = this.synchronizer.getLoopFrames();
+		if (this.accentClick == null || loop == null || loop.isClickTrackMuted() || loop.getBars() == null
+				|| loop.getBeats() == null || loopFrames <= 0 || !this.synchronizer.isRunning()) {
+			return;
+		}
+		int beats = loop.getBeats();
+		int totalBeats = loop.getBars() * beats;
+		if (totalBeats <= 0) {
+			return;
+		}
+		double framesPerBeat = loopFrames / (double) totalBeats;
+		long position = this.synchronizer.getCurrentFramePosition();
+		int clickFrames = (int) Math.min(this.accentClick.length, framesPerBeat);
+		// the last click may still be ringing; beats past the loop end belong to the next pass
+		for (long beat = (long) Math.floor((position - clickFrames) / framesPerBeat); beat * framesPerBeat < position
+				+ frames; beat++) {
+			long beatStart = Math.round(beat * framesPerBeat);
+			float[] click = Math.floorMod(beat, (long) totalBeats) % beats == 0 ? this.accentClick : this.beatClick;
+			int frame = (int) Math.max(0, beatStart - position);
+			for (int offset = (int) (position + frame - beatStart); frame < frames && offset < clickFrames; frame++, offset++) {
+				for (int channel = 0; channel < channels; channel++) {
+					mix[frame * channels + channel] += click[offset];
+				}
 			}
 		}
-		return clickBytes;
 	}
 }
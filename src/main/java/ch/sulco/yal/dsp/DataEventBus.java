@@ -0,0 +1,150 @@
+package ch.sulco.yal.dsp;
+
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.LockSupport;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import ch.sulco.yal.AppConfig;
+import ch.sulco.yal.dsp.DataStore.DataEvent;
+import ch.sulco.yal.dsp.DataStore.DataEventListener;
+
+/**
+ * Delivers data events asynchronously. Every listener gets its own queue and
+ * dispatch thread, so publishing from the audio, sync or HTTP threads never
+ * waits for a listener. Engine listeners get every event in order, UI
+ * listeners get a bounded queue that drops events when they fall behind.
+ */
+@Singleton
+public class DataEventBus {
+	private final static Logger log = LoggerFactory.getLogger(DataEventBus.class);
+
+	@Inject
+	private AppConfig appConfig;
+
+	private final List<Subscription> subscriptions = new CopyOnWriteArrayList<>();
+
+	public void subscribe(DataEventListener listener) {
+		this.start(new LosslessSubscription(listener));
+	}
+
+	public void subscribeUi(DataEventListener listener) {
+		this.start(new BoundedSubscription(listener, this.appConfig.getEventQueueCapacity(),
+				this.appConfig.getEventOverflowPolicy()));
+	}
+
+	public void publish(DataEvent event) {
+		for (Subscription subscription : this.subscriptions) {
+			subscription.offer(event);
+		}
+	}
+
+	private void start(Subscription subscription) {
+		this.subscriptions.add(subscription);
+		subscription.start();
+		log.info("Listener subscribed [" + subscription.getName() + "], now has " + this.subscriptions.size());
+	}
+
+	private static abstract class Subscription extends Thread {
+		private final DataEventListener listener;
+		private volatile boolean parked;
+
+		Subscription(DataEventListener listener) {
+			super("DataEvents-" + listener.getClass().getSimpleName());
+			this.setDaemon(true);
+			this.listener = listener;
+		}
+
+		abstract void enqueue(DataEvent event);
+
+		abstract DataEvent poll();
+
+		abstract boolean isEmpty();
+
+		void offer(DataEvent event) {
+			this.enqueue(event);
+			if (this.parked) {
+				LockSupport.unpark(this);
+			}
+		}
+
+		@Override
+		public void run() {
+			while (!this.isInterrupted()) {
+				DataEvent event = this.poll();
+				if (event == null) {
+					this.parked = true;
+					if (this.isEmpty()) {
+						LockSupport.park(this);
+					}
+					this.parked = false;
+					continue;
+				}
+				try {
+					this.listener.onDataEvent(event);
+				} catch (RuntimeException e) {
+					log.error("Listener failed on event [" + event.getEventType() + "]", e);
+				}
+			}
+		}
+	}
+
+	private static class LosslessSubscription extends Subscription {
+		private final Queue<DataEvent> queue = new ConcurrentLinkedQueue<>();
+
+		LosslessSubscription(DataEventListener listener) {
+			super(listener);
+		}
+
+		@Override
+		void enqueue(DataEvent event) {
+			this.queue.offer(event);
+		}
+
+		@Override
+		DataEvent poll() {
+			return this.queue.poll();
+		}
+
+		@Override
+		boolean isEmpty() {
+			return this.queue.isEmpty();
+		}
+	}
+
+	private static class BoundedSubscription extends Subscription {
+		private final BoundedEventQueue<DataEvent> queue;
+
+		BoundedSubscription(DataEventListener listener, int capacity, OverflowPolicy overflowPolicy) {
+			super(listener);
+			this.queue = new BoundedEventQueue<>(capacity, overflowPolicy);
+		}
+
+		@Override
+		void enqueue(DataEvent event) {
+			if (!this.queue.offer(event)) {
+				long dropped = this.queue.getDroppedCount();
+				if (Long.bitCount(dropped) == 1) {
+					log.warn("Event queue full, dropped event for [" + this.getName() + "][dropped=" + dropped + "]");
+				}
+			}
+		}
+
+		@Override
+		DataEvent poll() {
+			return this.queue.poll();
+		}
+
+		@Override
+		boolean isEmpty() {
+			return this.queue.size() == 0;
+		}
+	}
+}
@@ -3,16 +3,27 @@ package ch.sulco.yal.dsp;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.FileReader;
-import java.io.FileWriter;
 import java.io.IOException;
+import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.Objects;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 
 import javax.inject.Inject;
 import javax.inject.Singleton;
@@ -31,7 +42,11 @@ import ch.sulco.yal.dm.Channel;
 import ch.sulco.yal.dm.Loop;
 import ch.sulco.yal.dm.LooperState;
 import ch.sulco.yal.dm.Mapping;
+import ch.sulco.yal.dm.PcmBuffer;
 import ch.sulco.yal.dm.Sample;
+import ch.sulco.yal.dsp.audio.TakeWriter;
+import ch.sulco.yal.dsp.codec.LosslessCodec;
+import ch.sulco.yal.dsp.codec.LosslessSampleFile;
 import ch.sulco.yal.settings.AudioSettings;
 import ch.sulco.yal.settings.Settings;
 
@@ -44,16 +59,25 @@ public class DataStore {
 	@Inject
 	private AppConfig appConfig;
 
+	@Inject
+	private DataEventBus dataEventBus;
+
+	@Inject
+	private SessionPersister sessionPersister;
+
+	@Inject
+	private SessionJournal sessionJournal;
+
 	private LooperState looperState = LooperState.STOPPED;
 	private Long nextLoopId;
 
-	private final List<Loop> loops = new ArrayList<>();
-	private final List<Channel> channels = new ArrayList<>();
 	private final List<Mapping> mappings = new ArrayList<>();
 
-	private Settings settings;
+	private final AtomicReference<SessionSnapshot> snapshot = new AtomicReference<>(SessionSnapshot.EMPTY);
+	private final AtomicLong sampleIdAllocator = new AtomicLong();
+	private final Map<Long, Boolean> replayedMonitoring = new HashMap<>();
 
-	private final List<DataEventListener> listeners = new ArrayList<>();
+	private Settings settings;
 
 	public void setup() {
 		log.info("Setup");
@@ -70,8 +94,9 @@ public class DataStore {
 			log.error("Unable to load mapping", e);
 			throw new RuntimeException("Unable to load mapping", e);
 		}
+		List<Loop> loops = new ArrayList<>();
 		try {
-			this.loops.addAll(Lists.newArrayList(
+			loops.addAll(Lists.newArrayList(
 					new Gson().fromJson(
 							new FileReader(new File(appConfig.getDataPath() + "/loops.json")),
 							Loop[].class)));
@@ -79,19 +104,16 @@ public class DataStore {
 		} catch (JsonIOException | JsonSyntaxException | FileNotFoundException e) {
 			log.error("Unable to load loop", e);
 		}
-		for (Loop loop : this.loops) {
+		this.sessionJournal.replay(new JournalReplay(loops));
+		this.sessionJournal.open();
+		this.deleteStaleTakes();
+		for (Loop loop : loops) {
 			for (Sample sample : loop.getSamples()) {
-				Path path = Paths.get(appConfig.getDataPath() + "/" + sample.getId() + ".sample");
-				try {
-					sample.setData(Files.readAllBytes(path));
-					loops.stream().filter(l -> l.getSample(sample.getId()) != null)
-							.forEach(l -> l.getSample(sample.getId()).setData(sample.getData()));
-					log.info("sample data [" + sample.getId() + "][" + sample.getData().length + "]");
-				} catch (IOException e) {
-					log.error("Unable to load data for sample [" + sample.getId() + "]");
-				}
+				sample.setLoading(true);
 			}
+			this.publish(loop);
 		}
+		this.loadSamples(loops);
 		if (loops.isEmpty()) {
 			Loop loop = Application.injector.getInstance(Loop.class);
 			loop.setId(0L);
@@ -100,34 +122,133 @@ public class DataStore {
 		}
 	}
 
-	@SuppressWarnings("resource")
-	public void persistData() {
-		log.info("Persist data");
-		Gson gson = new Gson();
-		try {
-			String loopsJson = gson.toJson(this.loops);
-			log.info("persist loops: " + loopsJson);
-			FileWriter fileWriter = new FileWriter(new File(appConfig.getDataPath() + "/loops.json"));
-			fileWriter.write(loopsJson);
-			fileWriter.close();
+	/**
+	 * Deletes takes left behind by a recording that never finished, nothing
+	 * is recording yet during setup.
+	 */
+	private void deleteStaleTakes() {
+		Path dataPath = Paths.get(this.appConfig.getDataPath());
+		if (!Files.isDirectory(dataPath)) {
+			return;
+		}
+		try (DirectoryStream<Path> takes = Files.newDirectoryStream(dataPath, "take-*" + TakeWriter.EXTENSION)) {
+			for (Path take : takes) {
+				log.info("Deleting stale take [" + take.getFileName() + "]");
+				Files.deleteIfExists(take);
+			}
 		} catch (IOException e) {
-			log.error("Unable to persist loops", e);
+			log.error("Unable to delete stale takes", e);
 		}
+	}
 
-		for (Loop loop : loops) {
+	/**
+	 * Loads sample data on a bounded pool, the active loop first. Only the
+	 * active loop is waited for; every loop is published again as soon as all
+	 * of its samples are loaded.
+	 */
+	private void loadSamples(List<Loop> loops) {
+		Loop currentLoop = this.getCurrentLoop();
+		Map<Long, List<Sample>> samplesById = new LinkedHashMap<>();
+		Map<Long, List<Loop>> loopsBySampleId = new HashMap<>();
+		Map<Loop, AtomicInteger> pendingSamples = new HashMap<>();
+		List<Loop> ordered = new ArrayList<>(loops);
+		if (currentLoop != null) {
+			ordered.remove(currentLoop);
+			ordered.add(0, currentLoop);
+		}
+		for (Loop loop : ordered) {
 			for (Sample sample : loop.getSamples()) {
-				try {
-					log.info("Store sample data [" + sample.getId() + "]");
-					char[] data = new char[sample.getData().length];
-					for (int i = 0; i < sample.getData().length; i++) {
-						data[i] = (char) sample.getData()[i];
+				samplesById.computeIfAbsent(sample.getId(), id -> new ArrayList<>()).add(sample);
+				List<Loop> sampleLoops = loopsBySampleId.computeIfAbsent(sample.getId(), id -> new ArrayList<>());
+				if (!sampleLoops.contains(loop)) {
+					sampleLoops.add(loop);
+					pendingSamples.computeIfAbsent(loop, l -> new AtomicInteger()).incrementAndGet();
+				}
+			}
+		}
+
+		ThreadPoolExecutor loaderService = new ThreadPoolExecutor(this.appConfig.getSampleLoaderThreads(),
+				this.appConfig.getSampleLoaderThreads(), 1, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), r -> {
+					Thread thread = new Thread(r, "SampleLoader");
+					thread.setDaemon(true);
+					return thread;
+				});
+		loaderService.allowCoreThreadTimeOut(true);
+		List<Future<?>> currentLoopLoads = new ArrayList<>();
+		for (Entry<Long, List<Sample>> entry : samplesById.entrySet()) {
+			List<Loop> sampleLoops = loopsBySampleId.get(entry.getKey());
+			Future<?> load = loaderService.submit(() -> {
+				this.loadSample(entry.getKey(), entry.getValue());
+				for (Loop loop : sampleLoops) {
+					if (pendingSamples.get(loop).decrementAndGet() == 0) {
+						// data only, nothing to journal
+						this.publish(loop);
+						this.addEvent(new LoopUpdated(loop));
 					}
-					new FileWriter(new File(appConfig.getDataPath() + "/" + sample.getId() + ".sample")).write(data);
-				} catch (IOException e) {
-					log.error("Unable to persist samples [" + sample.getId() + "]", e);
 				}
+			});
+			if (sampleLoops.contains(currentLoop)) {
+				currentLoopLoads.add(load);
+			}
+		}
+		loaderService.shutdown();
+
+		for (Future<?> load : currentLoopLoads) {
+			try {
+				load.get();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return;
+			} catch (ExecutionException e) {
+				log.error("Unable to load current loop", e.getCause());
+			}
+		}
+		if (currentLoop != null) {
+			this.prefetch(currentLoop);
+		}
+		log.info("Current loop loaded, " + (samplesById.size() - currentLoopLoads.size()) + " samples loading in background");
+	}
+
+	private void loadSample(Long sampleId, List<Sample> samples) {
+		PcmBuffer data = null;
+		try {
+			data = this.loadSampleData(sampleId);
+			log.info("sample data [" + sampleId + "][" + data.getByteLength() + "]");
+			this.sessionPersister.loaded(sampleId, data);
+		} catch (IOException e) {
+			log.error("Unable to load data for sample [" + sampleId + "]");
+		}
+		for (Sample sample : samples) {
+			sample.setData(data);
+			sample.setLoading(false);
+		}
+	}
+
+	private PcmBuffer loadSampleData(Long sampleId) throws IOException {
+		Path compressed = Paths.get(this.appConfig.getDataPath(), sampleId + LosslessCodec.EXTENSION);
+		Path path = Paths.get(this.appConfig.getDataPath(), sampleId + ".sample");
+		if (Files.exists(compressed)) {
+			// a raw file next to it was kept while it was mapped as a take
+			Files.deleteIfExists(path);
+			return LosslessSampleFile.decode(compressed);
+		}
+		if (this.appConfig.isMappedSampleStorage()) {
+			return PcmBuffer.map(path, this.appConfig.getAudioFormat());
+		}
+		return PcmBuffer.wrap(Files.readAllBytes(path), this.appConfig.getAudioFormat());
+	}
+
+	private void prefetch(Loop loop) {
+		for (Sample sample : loop.getSamples()) {
+			if (sample.getData() != null) {
+				sample.getData().prefetch();
 			}
 		}
+	}
+
+	public void persistData() {
+		log.info("Persist data");
+		this.compactJournal();
 
 		save(Paths.get(this.appConfig.getSettingsPath(), AUDIO_SETTINGS_FILENAME), this.settings.getAudioSettings());
 	}
@@ -161,77 +282,130 @@ public class DataStore {
 		}
 	}
 
+	/**
+	 * @return the last published version of the session, its structure is
+	 *         never changed afterwards
+	 */
+	public SessionSnapshot getSnapshot() {
+		return this.snapshot.get();
+	}
+
 	public List<Loop> getLoops() {
-		return this.loops;
+		return this.snapshot.get().getLoops();
 	}
 
 	public Loop getCurrentLoop() {
-		return loops.stream().filter(l -> l.isActive()).findFirst().orElse(null);
+		return this.snapshot.get().getCurrentLoop();
 	}
 
 	public Sample getCurrentLoopSample(long sampleId) {
-		return getCurrentLoop().getSamples().stream().filter(s -> Objects.equals(sampleId, s.getId())).findFirst().orElse(null);
+		SessionSnapshot snapshot = this.snapshot.get();
+		Loop current = snapshot.getCurrentLoop();
+		return current == null ? null : snapshot.getSample(current.getId(), sampleId);
 	}
 
 	public Loop getLoop(Long id) {
-		return loops.stream().filter(l -> Objects.equals(id, l.getId())).findFirst().orElse(null);
+		return id == null ? null : this.snapshot.get().getLoop(id);
 	}
 
 	public void createLoop(Loop loop) {
-		this.loops.add(loop);
+		this.publish(loop);
 		this.addEvent(new LoopCreated(loop));
+		this.journaled(this.sessionJournal.loopChanged(loop));
 	}
 
 	public void updateLoop(Loop loop) {
-		this.loops.remove(getLoop(loop.getId()));
-		this.loops.add(loop);
+		this.publish(loop);
 		this.addEvent(new LoopUpdated(loop));
+		this.journaled(this.sessionJournal.loopChanged(loop));
+	}
+
+	private void journaled(boolean compact) {
+		if (compact) {
+			// keep the snapshot and serialization off the mutating thread
+			this.sessionPersister.execute(this::compactJournal);
+		}
+	}
+
+	/**
+	 * Saves the session and drops the journal segments it covers.
+	 */
+	private void compactJournal() {
+		long journalSegment = this.sessionJournal.rotate();
+		this.sessionPersister.persist(this.getLoops()).thenAccept(persisted -> {
+			if (persisted) {
+				this.sessionJournal.compact(journalSegment);
+			}
+		});
 	}
 
+	private void publish(Loop loop) {
+		for (Sample sample : loop.getSamples()) {
+			this.sampleIdAllocator.accumulateAndGet(sample.getId() + 1, Math::max);
+		}
+		this.snapshot.updateAndGet(s -> s.withLoop(loop));
+	}
+
+	/**
+	 * @return a sample id that has not been handed out or loaded before
+	 */
 	public Long getNextSampleId() {
-		return loops.stream()
-				.map(l -> l.getSamples())
-				.map(s -> s.stream()
-						.map(sa -> sa.getId())
-						.max((i1, i2) -> Long.compare(i1, i2))
-						.get())
-				.max((i1, i2) -> Long.compare(i1, i2))
-				.get() + 1;
+		return this.sampleIdAllocator.getAndIncrement();
 	}
 
 	public Sample getSample(Long loopId, Long sampleId) {
-		return loops.stream().filter(l -> Objects.equals(l.getId(), loopId)).findFirst().map(l -> l.getSample(sampleId)).get();
+		if (loopId == null || sampleId == null) {
+			return null;
+		}
+		return this.snapshot.get().getSample(loopId, sampleId);
 	}
 
 	public void createSample(Long loopId, Sample sample) {
 		Loop loop = getLoop(loopId);
 		loop.addSample(sample);
+		this.publish(loop);
 		this.addEvent(new LoopUpdated(loop));
+		if (sample.getData() == null || sample.getData().getFile() != null) {
+			this.journaled(this.sessionJournal.sampleCreated(loopId, sample));
+		} else {
+			// overdubs only live in memory, the journal must not refer to them
+			// before their data is on disk
+			this.sessionPersister.persistSample(sample.getId(), sample.getData())
+					.thenRun(() -> this.journaled(this.sessionJournal.sampleCreated(loopId, sample)));
+		}
 	}
 
 	public void updateSample(Long loopId, Sample sample) {
 		Loop loop = getLoop(loopId);
 		loop.updateSample(sample);
+		this.publish(loop);
 		this.addEvent(new LoopUpdated(loop));
+		this.journaled(this.sessionJournal.sampleUpdated(loopId, sample));
 	}
 
 	public List<Channel> getChannels() {
-		return this.channels;
+		return this.snapshot.get().getChannels();
 	}
 
 	public Channel getChannel(final Long id) {
-		return channels.stream().filter(c -> Objects.equals(id, c.getId())).findFirst().orElse(null);
+		return id == null ? null : this.snapshot.get().getChannel(id);
 	}
 
 	public void createChannel(Channel channel) {
-		this.channels.add(channel);
+		synchronized (this.replayedMonitoring) {
+			Boolean monitoring = this.replayedMonitoring.remove(channel.getId());
+			if (monitoring != null) {
+				channel.setMonitoring(monitoring);
+			}
+		}
+		this.snapshot.updateAndGet(s -> s.withChannel(channel));
 		this.addEvent(new ChannelCreated(channel));
 	}
 
 	public void updateChannel(Channel channel) {
-		this.channels.remove(getChannel(channel.getId()));
-		this.channels.add(channel);
+		this.snapshot.updateAndGet(s -> s.withChannel(channel));
 		this.addEvent(new ChannelUpdated(channel));
+		this.journaled(this.sessionJournal.channelChanged(channel));
 	}
 
 	public List<Mapping> getMappings() {
@@ -239,7 +413,15 @@ public class DataStore {
 	}
 
 	public void addListener(DataEventListener listener) {
-		this.listeners.add(listener);
+		this.dataEventBus.subscribe(listener);
+	}
+
+	/**
+	 * Subscribes a listener that only displays state, it may miss events when
+	 * it falls behind.
+	 */
+	public void addUiListener(DataEventListener listener) {
+		this.dataEventBus.subscribeUi(listener);
 	}
 
 	public LooperState getLooperState() {
@@ -257,11 +439,64 @@ public class DataStore {
 
 	public void setNextLoopId(Long nextLoopId) {
 		this.nextLoopId = nextLoopId;
+		Loop nextLoop = this.getLoop(nextLoopId);
+		if (nextLoop != null) {
+			this.prefetch(nextLoop);
+		}
 	}
 
 	private void addEvent(DataEvent event) {
-		for (DataEventListener listener : this.listeners) {
-			listener.onDataEvent(event);
+		this.dataEventBus.publish(event);
+	}
+
+	/**
+	 * Applies journaled changes on top of the loops read from
+	 * {@code loops.json}. Channels are only created once the audio system is
+	 * up, so their state is kept until then.
+	 */
+	private class JournalReplay implements SessionJournal.Handler {
+		private final List<Loop> loops;
+
+		JournalReplay(List<Loop> loops) {
+			this.loops = loops;
+		}
+
+		@Override
+		public void loop(Loop loop) {
+			this.loops.removeIf(l -> l.getId().equals(loop.getId()));
+			this.loops.add(loop);
+		}
+
+		@Override
+		public void sampleCreated(long loopId, Sample sample) {
+			Loop loop = this.find(loopId);
+			if (loop == null) {
+				return;
+			}
+			if (loop.getSample(sample.getId()) == null) {
+				loop.addSample(sample);
+			} else {
+				loop.updateSample(sample);
+			}
+		}
+
+		@Override
+		public void sampleUpdated(long loopId, Sample sample) {
+			Loop loop = this.find(loopId);
+			if (loop != null && loop.getSample(sample.getId()) != null) {
+				loop.updateSample(sample);
+			}
+		}
+
+		@Override
+		public void channelMonitoring(long channelId, boolean monitoring) {
+			synchronized (DataStore.this.replayedMonitoring) {
+				DataStore.this.replayedMonitoring.put(channelId, monitoring);
+			}
+		}
+
+		private Loop find(long loopId) {
+			return this.loops.stream().filter(l -> l.getId() == loopId).findFirst().orElse(null);
 		}
 	}
 
@@ -0,0 +1,148 @@
+package ch.sulco.yal.dsp;
+
+/**
+ * Open addressing map from primitive long ids to values, so lookups neither
+ * box the key nor walk a list. Writers are serialized and copy the table
+ * before changing it, so the lock free readers only ever see a fully built
+ * table published through the volatile field.
+ */
+public class LongMap<V> {
+
+	private static final int INITIAL_CAPACITY = 16;
+
+	private volatile Table table = new Table(INITIAL_CAPACITY);
+	private int size;
+
+	@SuppressWarnings("unchecked")
+	public V get(long key) {
+		Table table = this.table;
+		int mask = table.keys.length - 1;
+		for (int index = hash(key) & mask;; index = (index + 1) & mask) {
+			Object value = table.values[index];
+			if (value == null) {
+				return null;
+			}
+			if (table.keys[index] == key) {
+				return (V) value;
+			}
+		}
+	}
+
+	public boolean containsKey(long key) {
+		return this.get(key) != null;
+	}
+
+	@SuppressWarnings("unchecked")
+	public synchronized V put(long key, V value) {
+		if (value == null) {
+			throw new IllegalArgumentException("Null values are not supported [" + key + "]");
+		}
+		Table table;
+		if ((this.size + 1) * 4 > this.table.keys.length * 3) {
+			table = this.resize(this.table.keys.length * 2);
+		} else {
+			table = this.table.copy();
+		}
+		int mask = table.keys.length - 1;
+		for (int index = hash(key) & mask;; index = (index + 1) & mask) {
+			Object previous = table.values[index];
+			if (previous == null) {
+				table.keys[index] = key;
+				table.values[index] = value;
+				this.table = table;
+				this.size++;
+				return null;
+			}
+			if (table.keys[index] == key) {
+				table.values[index] = value;
+				this.table = table;
+				return (V) previous;
+			}
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	public synchronized V remove(long key) {
+		Table table = this.table;
+		int mask = table.keys.length - 1;
+		int index = hash(key) & mask;
+		while (table.values[index] != null && table.keys[index] != key) {
+			index = (index + 1) & mask;
+		}
+		Object removed = table.values[index];
+		if (removed == null) {
+			return null;
+		}
+		table = table.copy();
+		// shift following entries of the same probe run back into the gap
+		int gap = index;
+		for (int next = (gap + 1) & mask; table.values[next] != null; next = (next + 1) & mask) {
+			int home = hash(table.keys[next]) & mask;
+			if (((next - home) & mask) >= ((next - gap) & mask)) {
+				table.keys[gap] = table.keys[next];
+				table.values[gap] = table.values[next];
+				gap = next;
+			}
+		}
+		table.values[gap] = null;
+		this.table = table;
+		this.size--;
+		return (V) removed;
+	}
+
+	public synchronized LongMap<V> copy() {
+		LongMap<V> copy = new LongMap<>();
+		copy.table = this.table.copy();
+		copy.size = this.size;
+		return copy;
+	}
+
+	public synchronized void clear() {
+		this.table = new Table(INITIAL_CAPACITY);
+		this.size = 0;
+	}
+
+	public synchronized int size() {
+		return this.size;
+	}
+
+	private Table resize(int capacity) {
+		Table previous = this.table;
+		Table resized = new Table(capacity);
+		int mask = capacity - 1;
+		for (int i = 0; i < previous.keys.length; i++) {
+			if (previous.values[i] != null) {
+				int index = hash(previous.keys[i]) & mask;
+				while (resized.values[index] != null) {
+					index = (index + 1) & mask;
+				}
+				resized.keys[index] = previous.keys[i];
+				resized.values[index] = previous.values[i];
+			}
+		}
+		return resized;
+	}
+
+	private static int hash(long key) {
+		long h = key * 0x9E3779B97F4A7C15L;
+		return (int) (h ^ (h >>> 32));
+	}
+
+	private static class Table {
+		private final long[] keys;
+		private final Object[] values;
+
+		Table(int capacity) {
+			this(new long[capacity], new Object[capacity]);
+		}
+
+		Table(long[] keys, Object[] values) {
+			this.keys = keys;
+			this.values = values;
+		}
+
+		Table copy() {
+			return new Table(this.keys.clone(), this.values.clone());
+		}
+	}
+}
@@ -0,0 +1,8 @@
+package ch.sulco.yal.dsp;
+
+public enum OverflowPolicy {
+	/** Discard the oldest queued event to make room for the new one. */
+	DROP_OLDEST,
+	/** Discard the new event, keeping what is already queued. */
+	DROP_NEWEST
+}
@@ -1,9 +1,10 @@
 package ch.sulco.yal.dsp;
 
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 import javax.inject.Inject;
 import javax.inject.Singleton;
@@ -18,16 +19,14 @@ public class SampleMutator {
 	@Inject
 	private DataStore dataStore;
 
-	private Map<Long, List<AudioSink>> samplePlayers = new HashMap<>();
+	private final Map<Long, List<AudioSink>> samplePlayers = new ConcurrentHashMap<>();
 
 	public List<AudioSink> getSamplePlayers(Long sampleId) {
 		return samplePlayers.containsKey(sampleId) ? samplePlayers.get(sampleId) : new ArrayList<>();
 	}
 
 	public void setMute(Long loopId, Long sampleId, boolean mute, AudioSink player, boolean doSynchronization) {
-		if (!samplePlayers.containsKey(sampleId)) {
-			samplePlayers.put(sampleId, new ArrayList<>());
-		}
+		samplePlayers.computeIfAbsent(sampleId, id -> new CopyOnWriteArrayList<>());
 		if (player != null) {
 			Sample sample = dataStore.getSample(loopId, sampleId);
 			Loop loop = dataStore.getLoop(loopId);
@@ -54,9 +53,7 @@ public class SampleMutator {
 	}
 
 	public void stopSample(Long loopId, Long sampleId, AudioSink player, boolean doSynchronization) {
-		if (!samplePlayers.containsKey(sampleId)) {
-			samplePlayers.put(sampleId, new ArrayList<>());
-		}
+		samplePlayers.computeIfAbsent(sampleId, id -> new CopyOnWriteArrayList<>());
 		if (player != null) {
 			Sample sample = dataStore.getSample(loopId, sampleId);
 			Loop loop = dataStore.getLoop(loopId);
@@ -70,9 +67,7 @@ public class SampleMutator {
 	}
 
 	public void startSample(Long loopId, Long sampleId, AudioSink player, boolean doSynchronization) {
-		if (!samplePlayers.containsKey(sampleId)) {
-			samplePlayers.put(sampleId, new ArrayList<>());
-		}
+		samplePlayers.computeIfAbsent(sampleId, id -> new CopyOnWriteArrayList<>());
 		if (player != null) {
 			Sample sample = dataStore.getSample(loopId, sampleId);
 			Loop loop = dataStore.getLoop(loopId);
@@ -0,0 +1,286 @@
+package ch.sulco.yal.dsp;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.CRC32;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import ch.sulco.yal.AppConfig;
+import ch.sulco.yal.dm.Channel;
+import ch.sulco.yal.dm.Loop;
+import ch.sulco.yal.dm.Sample;
+
+/**
+ * Append-only log of session changes since the last save. Callers only
+ * enqueue a record; a writer thread appends everything pending in one go
+ * and forces it to disk once per batch. Every save starts a new segment and
+ * the older ones are deleted once the save is on disk, so replaying
+ * {@code loops.json} plus the remaining segments restores the session.
+ */
+@Singleton
+public class SessionJournal {
+	private final static Logger log = LoggerFactory.getLogger(SessionJournal.class);
+
+	private static final byte LOOP = 1;
+	private static final byte SAMPLE_CREATED = 2;
+	private static final byte SAMPLE_UPDATED = 3;
+	private static final byte CHANNEL = 4;
+
+	private static final Pattern SEGMENT_NAME = Pattern.compile("journal-(\\d+)\\.log");
+	private static final int RECORD_HEADER_BYTES = 8;
+
+	@Inject
+	private AppConfig appConfig;
+
+	private final Gson gson = new Gson();
+	private final BlockingQueue<Object> pending = new LinkedBlockingQueue<>();
+	private boolean open;
+	private long segment;
+	private int records;
+
+	public interface Handler {
+		void loop(Loop loop);
+
+		void sampleCreated(long loopId, Sample sample);
+
+		void sampleUpdated(long loopId, Sample sample);
+
+		void channelMonitoring(long channelId, boolean monitoring);
+	}
+
+	/**
+	 * Replays all segments in order. Stops at the first torn or corrupt
+	 * record of a segment, which is what a crash during an append leaves.
+	 */
+	public void replay(Handler handler) {
+		int replayed = 0;
+		for (Path file : this.getSegments().values()) {
+			try {
+				ByteBuffer data = ByteBuffer.wrap(Files.readAllBytes(file)).order(ByteOrder.LITTLE_ENDIAN);
+				while (data.remaining() >= RECORD_HEADER_BYTES) {
+					int length = data.getInt();
+					int crc = data.getInt();
+					if (length < 9 || length > data.remaining()) {
+						log.warn("Journal ends with a partial record [" + file.getFileName() + "]");
+						break;
+					}
+					CRC32 checksum = new CRC32();
+					checksum.update(data.array(), data.position(), length);
+					if ((int) checksum.getValue() != crc) {
+						log.warn("Journal record corrupt, ignoring the rest [" + file.getFileName() + "]");
+						break;
+					}
+					byte type = data.get();
+					long id = data.getLong();
+					String json = new String(data.array(), data.position(), length - 9, StandardCharsets.UTF_8);
+					data.position(data.position() + length - 9);
+					this.apply(handler, type, id, json);
+					replayed++;
+				}
+			} catch (IOException e) {
+				log.error("Unable to replay journal [" + file.getFileName() + "]", e);
+			}
+		}
+		log.info("Journal replayed [records=" + replayed + "]");
+	}
+
+	private void apply(Handler handler, byte type, long id, String json) {
+		switch (type) {
+		case LOOP:
+			handler.loop(this.gson.fromJson(json, Loop.class));
+			break;
+		case SAMPLE_CREATED:
+			handler.sampleCreated(id, this.gson.fromJson(json, Sample.class));
+			break;
+		case SAMPLE_UPDATED:
+			handler.sampleUpdated(id, this.gson.fromJson(json, Sample.class));
+			break;
+		case CHANNEL:
+			JsonObject channel = new JsonParser().parse(json).getAsJsonObject();
+			handler.channelMonitoring(id, channel.get("monitoring").getAsBoolean());
+			break;
+		default:
+			log.warn("Unknown journal record [" + type + "]");
+		}
+	}
+
+	/**
+	 * Starts appending to a fresh segment after the existing ones.
+	 */
+	public synchronized void open() {
+		TreeMap<Long, Path> segments = this.getSegments();
+		this.segment = segments.isEmpty() ? 0 : segments.lastKey() + 1;
+		this.pending.add(new Rotation(this.segment));
+		Thread writer = new Thread(this::write, "SessionJournal");
+		writer.setDaemon(true);
+		writer.start();
+		this.open = true;
+	}
+
+	/**
+	 * @return true once enough records have been appended since the last
+	 *         save that the journal should be compacted
+	 */
+	public boolean loopChanged(Loop loop) {
+		return this.append(LOOP, loop.getId(), this.gson.toJson(loop));
+	}
+
+	public boolean sampleCreated(Long loopId, Sample sample) {
+		return this.append(SAMPLE_CREATED, loopId, this.gson.toJson(sample));
+	}
+
+	public boolean sampleUpdated(Long loopId, Sample sample) {
+		return this.append(SAMPLE_UPDATED, loopId, this.gson.toJson(sample));
+	}
+
+	public boolean channelChanged(Channel channel) {
+		JsonObject state = new JsonObject();
+		state.addProperty("monitoring", channel.isMonitoring());
+		return this.append(CHANNEL, channel.getId(), state.toString());
+	}
+
+	private synchronized boolean append(byte type, long id, String json) {
+		if (!this.open) {
+			return false;
+		}
+		byte[] payload = json.getBytes(StandardCharsets.UTF_8);
+		ByteBuffer record = ByteBuffer.allocate(RECORD_HEADER_BYTES + 9 + payload.length).order(ByteOrder.LITTLE_ENDIAN);
+		record.putInt(9 + payload.length);
+		record.putInt(0);
+		record.put(type);
+		record.putLong(id);
+		record.put(payload);
+		CRC32 checksum = new CRC32();
+		checksum.update(record.array(), RECORD_HEADER_BYTES, 9 + payload.length);
+		record.putInt(4, (int) checksum.getValue());
+		record.flip();
+		this.pending.add(record);
+		return ++this.records == this.appConfig.getJournalCompactionRecords();
+	}
+
+	/**
+	 * Starts a new segment. Call right before the session is captured for a
+	 * save and pass the result to {@link #compact(long)} once it is on disk.
+	 */
+	public synchronized long rotate() {
+		if (!this.open) {
+			return -1;
+		}
+		long previous = this.segment;
+		this.segment++;
+		this.records = 0;
+		this.pending.add(new Rotation(this.segment));
+		return previous;
+	}
+
+	public void compact(long upToSegment) {
+		if (upToSegment >= 0) {
+			this.pending.add(new Compaction(upToSegment));
+		}
+	}
+
+	private void write() {
+		FileChannel channel = null;
+		List<Object> batch = new ArrayList<>();
+		while (true) {
+			try {
+				batch.add(this.pending.take());
+				this.pending.drainTo(batch);
+				boolean dirty = false;
+				for (Object item : batch) {
+					if (item instanceof ByteBuffer && channel != null) {
+						ByteBuffer record = (ByteBuffer) item;
+						while (record.hasRemaining()) {
+							channel.write(record);
+						}
+						dirty = true;
+					} else if (item instanceof Rotation) {
+						if (channel != null) {
+							channel.force(false);
+							channel.close();
+						}
+						dirty = false;
+						channel = FileChannel.open(this.getSegmentPath(((Rotation) item).segment), StandardOpenOption.CREATE,
+								StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+					} else if (item instanceof Compaction) {
+						for (Path file : this.getSegments().headMap(((Compaction) item).upToSegment, true).values()) {
+							Files.deleteIfExists(file);
+						}
+					}
+				}
+				if (dirty) {
+					channel.force(false);
+				}
+			} catch (InterruptedException e) {
+				return;
+			} catch (IOException e) {
+				log.error("Unable to write journal", e);
+			} finally {
+				batch.clear();
+			}
+		}
+	}
+
+	private TreeMap<Long, Path> getSegments() {
+		TreeMap<Long, Path> segments = new TreeMap<>();
+		Path dataPath = Paths.get(this.appConfig.getDataPath());
+		if (!Files.isDirectory(dataPath)) {
+			return segments;
+		}
+		try (DirectoryStream<Path> files = Files.newDirectoryStream(dataPath, "journal-*.log")) {
+			for (Path file : files) {
+				Matcher matcher = SEGMENT_NAME.matcher(file.getFileName().toString());
+				if (matcher.matches()) {
+					segments.put(Long.parseLong(matcher.group(1)), file);
+				}
+			}
+		} catch (IOException e) {
+			log.error("Unable to list journal segments", e);
+		}
+		return segments;
+	}
+
+	private Path getSegmentPath(long segment) {
+		return Paths.get(this.appConfig.getDataPath(), "journal-" + segment + ".log");
+	}
+
+	private static class Rotation {
+		private final long segment;
+
+		Rotation(long segment) {
+			this.segment = segment;
+		}
+	}
+
+	private static class Compaction {
+		private final long upToSegment;
+
+		Compaction(long upToSegment) {
+			this.upToSegment = upToSegment;
+		}
+	}
+}
@@ -0,0 +1,183 @@
+package ch.sulco.yal.dsp;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.gson.Gson;
+
+import ch.sulco.yal.AppConfig;
+import ch.sulco.yal.dm.Loop;
+import ch.sulco.yal.dm.PcmBuffer;
+import ch.sulco.yal.dm.Sample;
+import ch.sulco.yal.dm.SampleFormat;
+import ch.sulco.yal.dsp.codec.LosslessCodec;
+
+/**
+ * Writes the session to the data path on its own thread. Sample data is
+ * written as raw PCM, or losslessly compressed if configured, and only when
+ * it changed since the last save; every file is written to a temporary
+ * sibling and renamed into place, with {@code loops.json} going last so it
+ * never refers to a partial sample.
+ */
+@Singleton
+public class SessionPersister {
+	private final static Logger log = LoggerFactory.getLogger(SessionPersister.class);
+
+	private static final String LOOPS_FILENAME = "loops.json";
+	private static final String RAW_EXTENSION = ".sample";
+
+	@Inject
+	private AppConfig appConfig;
+
+	private final ThreadPoolExecutor persistService = new ThreadPoolExecutor(1, 1, 5, TimeUnit.SECONDS,
+			new LinkedBlockingQueue<>(), r -> new Thread(r, "SessionPersister"));
+
+	// only touched by the persist thread
+	private final Map<Long, PcmBuffer> persistedSamples = new HashMap<>();
+	private String persistedLoops;
+
+	public SessionPersister() {
+		// let the JVM exit once pending saves are written
+		this.persistService.allowCoreThreadTimeOut(true);
+	}
+
+	/**
+	 * Captures the loops as they are now and writes them asynchronously.
+	 *
+	 * @return completes with true once everything has been written
+	 */
+	public CompletableFuture<Boolean> persist(List<Loop> loops) {
+		String loopsJson = new Gson().toJson(loops);
+		Map<Long, PcmBuffer> samples = new LinkedHashMap<>();
+		for (Loop loop : loops) {
+			for (Sample sample : loop.getSamples()) {
+				if (sample.getData() != null) {
+					samples.put(sample.getId(), sample.getData());
+				}
+			}
+		}
+		return CompletableFuture.supplyAsync(() -> this.write(loopsJson, samples), this.persistService);
+	}
+
+	/**
+	 * Writes the data of a single sample asynchronously, unless it is already
+	 * on disk.
+	 *
+	 * @return completes with true once the data has been written
+	 */
+	public CompletableFuture<Boolean> persistSample(Long sampleId, PcmBuffer data) {
+		return CompletableFuture.supplyAsync(() -> {
+			try {
+				this.writeSample(sampleId, data);
+				return true;
+			} catch (IOException e) {
+				log.error("Unable to persist sample [" + sampleId + "]", e);
+				return false;
+			}
+		}, this.persistService);
+	}
+
+	/**
+	 * Records sample data that was just read from the data path, so it is not
+	 * written again until it changes.
+	 */
+	public void loaded(Long sampleId, PcmBuffer data) {
+		this.persistService.execute(() -> this.persistedSamples.put(sampleId, data));
+	}
+
+	/**
+	 * Runs the given task on the persist thread, after the saves queued so far.
+	 */
+	public void execute(Runnable task) {
+		this.persistService.execute(task);
+	}
+
+	private boolean write(String loopsJson, Map<Long, PcmBuffer> samples) {
+		long start = System.nanoTime();
+		int written = 0;
+		boolean complete = true;
+		for (Entry<Long, PcmBuffer> sample : samples.entrySet()) {
+			try {
+				if (this.writeSample(sample.getKey(), sample.getValue())) {
+					written++;
+				}
+			} catch (IOException e) {
+				log.error("Unable to persist sample [" + sample.getKey() + "]", e);
+				complete = false;
+			}
+		}
+		if (!loopsJson.equals(this.persistedLoops)) {
+			try {
+				writeAtomically(Paths.get(this.appConfig.getDataPath(), LOOPS_FILENAME),
+						ByteBuffer.wrap(loopsJson.getBytes(StandardCharsets.UTF_8)));
+				this.persistedLoops = loopsJson;
+			} catch (IOException e) {
+				log.error("Unable to persist loops", e);
+				complete = false;
+			}
+		}
+		log.info("Session persisted [samples=" + written + "/" + samples.size() + "][ms="
+				+ TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + "]");
+		return complete;
+	}
+
+	/**
+	 * @return false if the data was already on disk
+	 */
+	private boolean writeSample(Long sampleId, PcmBuffer data) throws IOException {
+		boolean compressed = this.appConfig.isCompressedSampleStorage() && data.getFormat() == SampleFormat.PCM_SIGNED_16;
+		Path rawFile = Paths.get(this.appConfig.getDataPath(), sampleId + RAW_EXTENSION);
+		Path compressedFile = Paths.get(this.appConfig.getDataPath(), sampleId + LosslessCodec.EXTENSION);
+		if (this.persistedSamples.get(sampleId) == data || (!compressed && rawFile.equals(data.getFile()))) {
+			// unchanged since the last save or mapped straight from its own file
+			return false;
+		}
+		if (compressed) {
+			writeAtomically(compressedFile, LosslessCodec.encode(data));
+			if (!rawFile.equals(data.getFile())) {
+				// a mapped take keeps its raw file, the compressed one is
+				// preferred when loading
+				Files.deleteIfExists(rawFile);
+			}
+		} else {
+			writeAtomically(rawFile, data.asByteBuffer());
+			Files.deleteIfExists(compressedFile);
+		}
+		this.persistedSamples.put(sampleId, data);
+		return true;
+	}
+
+	static void writeAtomically(Path file, ByteBuffer data) throws IOException {
+		Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+		try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING)) {
+			while (data.hasRemaining()) {
+				channel.write(data);
+			}
+			channel.force(false);
+		}
+		Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+	}
+}
@@ -0,0 +1,110 @@
+package ch.sulco.yal.dsp;
+
+import java.util.List;
+import java.util.Objects;
+
+import com.google.common.collect.ImmutableList;
+
+import ch.sulco.yal.dm.Channel;
+import ch.sulco.yal.dm.Loop;
+import ch.sulco.yal.dm.Sample;
+
+/**
+ * One published version of the session. The lists and indexes of a snapshot
+ * are never changed after it has been built; adding or replacing a loop or
+ * channel produces a new one, so readers on the audio and sync threads can
+ * look them up without locking. The loops, samples and channels themselves
+ * are shared with the data store and may still change in place.
+ */
+public final class SessionSnapshot {
+
+	public static final SessionSnapshot EMPTY = new SessionSnapshot(ImmutableList.of(), ImmutableList.of(),
+			new LongMap<>(), new LongMap<>(), new LongMap<>(), null);
+
+	private final ImmutableList<Loop> loops;
+	private final ImmutableList<Channel> channels;
+	private final LongMap<Loop> loopIndex;
+	private final LongMap<LongMap<Sample>> sampleIndex;
+	private final LongMap<Channel> channelIndex;
+	private final Loop currentLoop;
+
+	private SessionSnapshot(ImmutableList<Loop> loops, ImmutableList<Channel> channels, LongMap<Loop> loopIndex,
+			LongMap<LongMap<Sample>> sampleIndex, LongMap<Channel> channelIndex, Loop currentLoop) {
+		this.loops = loops;
+		this.channels = channels;
+		this.loopIndex = loopIndex;
+		this.sampleIndex = sampleIndex;
+		this.channelIndex = channelIndex;
+		this.currentLoop = currentLoop;
+	}
+
+	public List<Loop> getLoops() {
+		return this.loops;
+	}
+
+	public List<Channel> getChannels() {
+		return this.channels;
+	}
+
+	public Loop getCurrentLoop() {
+		return this.currentLoop;
+	}
+
+	public Loop getLoop(long loopId) {
+		return this.loopIndex.get(loopId);
+	}
+
+	public Sample getSample(long loopId, long sampleId) {
+		LongMap<Sample> samples = this.sampleIndex.get(loopId);
+		return samples == null ? null : samples.get(sampleId);
+	}
+
+	public Channel getChannel(long channelId) {
+		return this.channelIndex.get(channelId);
+	}
+
+	/**
+	 * @return a new version in which {@code loop} replaces the loop with the
+	 *         same id, or is appended if there is none
+	 */
+	public SessionSnapshot withLoop(Loop loop) {
+		ImmutableList.Builder<Loop> loops = ImmutableList.builder();
+		for (Loop existing : this.loops) {
+			if (!Objects.equals(existing.getId(), loop.getId())) {
+				loops.add(existing);
+			}
+		}
+		loops.add(loop);
+		ImmutableList<Loop> newLoops = loops.build();
+
+		LongMap<Loop> loopIndex = this.loopIndex.copy();
+		loopIndex.put(loop.getId(), loop);
+		LongMap<Sample> samples = new LongMap<>();
+		for (Sample sample : loop.getSamples()) {
+			samples.put(sample.getId(), sample);
+		}
+		LongMap<LongMap<Sample>> sampleIndex = this.sampleIndex.copy();
+		sampleIndex.put(loop.getId(), samples);
+
+		Loop currentLoop = newLoops.stream().filter(l -> l.isActive()).findFirst().orElse(null);
+		return new SessionSnapshot(newLoops, this.channels, loopIndex, sampleIndex, this.channelIndex, currentLoop);
+	}
+
+	/**
+	 * @return a new version in which {@code channel} replaces the channel with
+	 *         the same id, or is appended if there is none
+	 */
+	public SessionSnapshot withChannel(Channel channel) {
+		ImmutableList.Builder<Channel> channels = ImmutableList.builder();
+		for (Channel existing : this.channels) {
+			if (!Objects.equals(existing.getId(), channel.getId())) {
+				channels.add(existing);
+			}
+		}
+		channels.add(channel);
+		LongMap<Channel> channelIndex = this.channelIndex.copy();
+		channelIndex.put(channel.getId(), channel);
+		return new SessionSnapshot(this.loops, channels.build(), this.loopIndex, this.sampleIndex, channelIndex,
+				this.currentLoop);
+	}
+}
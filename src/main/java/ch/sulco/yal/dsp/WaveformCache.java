@@ -0,0 +1,105 @@
+package ch.sulco.yal.dsp;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import ch.sulco.yal.AppConfig;
+import ch.sulco.yal.dm.Sample;
+import ch.sulco.yal.dsp.audio.WaveformPyramid;
+
+/**
+ * Waveform overviews by sample id, kept in memory and as a {@code .peaks}
+ * file next to the sample data. Missing or outdated overviews are built from
+ * the sample data on first use. Files are written and deleted on the
+ * {@link SessionPersister} thread, in the order they were requested.
+ */
+@Singleton
+public class WaveformCache {
+	private final static Logger log = LoggerFactory.getLogger(WaveformCache.class);
+
+	@Inject
+	private AppConfig appConfig;
+
+	@Inject
+	private SessionPersister sessionPersister;
+
+	private final Map<Long, WaveformPyramid> pyramids = new ConcurrentHashMap<>();
+
+	public void put(Long sampleId, WaveformPyramid pyramid) {
+		this.pyramids.put(sampleId, pyramid);
+		this.save(sampleId, pyramid);
+	}
+
+	/**
+	 * Drops the overview of a sample whose data was replaced.
+	 */
+	public void remove(Long sampleId) {
+		this.pyramids.remove(sampleId);
+		this.sessionPersister.execute(() -> {
+			try {
+				Files.deleteIfExists(this.getPath(sampleId));
+			} catch (IOException e) {
+				log.error("Unable to delete waveform [" + sampleId + "]", e);
+			}
+		});
+	}
+
+	/**
+	 * @return the overview of the sample, or null while it has no data
+	 */
+	public WaveformPyramid get(Sample sample) {
+		if (sample.getData() == null) {
+			return null;
+		}
+		int frameCount = sample.getData().getFrameCount();
+		WaveformPyramid pyramid = this.pyramids.get(sample.getId());
+		if (pyramid != null && pyramid.getFrameCount() == frameCount) {
+			return pyramid;
+		}
+		pyramid = this.load(sample.getId());
+		if (pyramid == null || pyramid.getFrameCount() != frameCount) {
+			pyramid = WaveformPyramid.of(sample.getData());
+			this.save(sample.getId(), pyramid);
+		}
+		this.pyramids.put(sample.getId(), pyramid);
+		return pyramid;
+	}
+
+	private WaveformPyramid load(Long sampleId) {
+		Path file = this.getPath(sampleId);
+		if (!Files.exists(file)) {
+			return null;
+		}
+		try {
+			return WaveformPyramid.read(ByteBuffer.wrap(Files.readAllBytes(file)));
+		} catch (IOException | RuntimeException e) {
+			log.warn("Unable to read waveform [" + sampleId + "], rebuilding it", e);
+			return null;
+		}
+	}
+
+	private void save(Long sampleId, WaveformPyramid pyramid) {
+		this.sessionPersister.execute(() -> {
+			try {
+				SessionPersister.writeAtomically(this.getPath(sampleId), pyramid.toByteBuffer());
+			} catch (IOException e) {
+				log.error("Unable to save waveform [" + sampleId + "]", e);
+			}
+		});
+	}
+
+	private Path getPath(Long sampleId) {
+		return Paths.get(this.appConfig.getDataPath(), sampleId + WaveformPyramid.EXTENSION);
+	}
+}
@@ -1,5 +1,5 @@
 package ch.sulco.yal.dsp.audio;
 
 public interface AudioDataListener {
-	void newAudioData(byte[] data);
+	void newAudioData(byte[] data, int offset, int length);
 }
@@ -1,12 +1,14 @@
 package ch.sulco.yal.dsp.audio;
 
-import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 import javax.inject.Inject;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import ch.sulco.yal.dm.OutputChannel;
 import ch.sulco.yal.dm.Sample;
 import ch.sulco.yal.dsp.audio.onboard.LoopListener;
 import ch.sulco.yal.dsp.audio.onboard.SyncAdjuster;
@@ -19,7 +21,26 @@ public abstract class AudioSink implements SyncAdjuster, LoopListener {
 	@Inject
 	private Synchronizer synchronizer;
 
-	private LinkedList<Sample> playingSamples = new LinkedList<>();
+	@Inject
+	private MeterFeed meterFeed;
+
+	private OutputChannel outputChannel;
+	private volatile LevelMeter levelMeter;
+
+	private final List<Sample> playingSamples = new CopyOnWriteArrayList<>();
+
+	protected OutputChannel getOutputChannel() {
+		return this.outputChannel;
+	}
+
+	public void setOutputChannel(OutputChannel outputChannel) {
+		this.outputChannel = outputChannel;
+		this.levelMeter = this.meterFeed.getMeter(outputChannel);
+	}
+
+	protected LevelMeter getLevelMeter() {
+		return this.levelMeter;
+	}
 
 	public void startSample(Sample sample, boolean doSynchronization) {
 		log.info("Start sample [" + sample.getId() + "]");
@@ -65,11 +86,12 @@ public abstract class AudioSink implements SyncAdjuster, LoopListener {
 	public abstract void muteSample(Sample sample, boolean mute);
 
 	@Override
-	public void loopStarted(boolean firstLoop) {
+	public void loopStarted(boolean firstLoop, long boundaryFrame) {
 		for (Sample sample : this.playingSamples) {
 			long samplePosition = this.getSamplePosition(sample);
 			if (samplePosition == 0) {
-				this.playSample(sample, 0, -1);
+				// as far into the sample as the transport moved past the boundary
+				this.playSample(sample, this.synchronizer.getPositionSince(boundaryFrame), -1);
 			}
 		}
 	}
@@ -85,7 +107,9 @@ public abstract class AudioSink implements SyncAdjuster, LoopListener {
 	public SyncAdjustment getSyncAdjustment() {
 		long halfLoopLength = synchronizer.getLoopLength() / 2;
 		SyncAdjustment syncAdjustment = new SyncAdjustment(halfLoopLength, -halfLoopLength, 0L);
+		int count = 0;
 		for (Sample sample : this.playingSamples) {
+			count++;
 			long samplePosition = this.getSamplePosition(sample);
 			if (samplePosition != 0) {
 				samplePosition += halfLoopLength;
@@ -100,7 +124,9 @@ public abstract class AudioSink implements SyncAdjuster, LoopListener {
 				}
 			}
 		}
-		syncAdjustment.setAverageSamplePosition(syncAdjustment.getAverageSamplePosition() / this.playingSamples.size());
+		if (count > 0) {
+			syncAdjustment.setAverageSamplePosition(syncAdjustment.getAverageSamplePosition() / count);
+		}
 		return syncAdjustment;
 	}
 }
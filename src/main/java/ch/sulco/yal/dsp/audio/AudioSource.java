@@ -1,8 +1,8 @@
 package ch.sulco.yal.dsp.audio;
 
-import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Paths;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.List;
 
 import javax.inject.Inject;
@@ -10,11 +10,14 @@ import javax.inject.Inject;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import ch.sulco.yal.AppConfig;
 import ch.sulco.yal.dm.InputChannel;
 import ch.sulco.yal.dm.Loop;
+import ch.sulco.yal.dm.PcmBuffer;
 import ch.sulco.yal.dm.RecordingState;
 import ch.sulco.yal.dm.Sample;
 import ch.sulco.yal.dsp.DataStore;
+import ch.sulco.yal.dsp.WaveformCache;
 import ch.sulco.yal.dsp.audio.onboard.LoopListener;
 import ch.sulco.yal.dsp.audio.onboard.Synchronizer;
 
@@ -22,27 +25,81 @@ public abstract class AudioSource implements LoopListener, AudioDataListener {
 
 	private final static Logger log = LoggerFactory.getLogger(AudioSource.class);
 
+	private static final int CAPTURE_BUFFER_SIZE = 1 << 20;
+
+	@Inject
+	private AppConfig appConfig;
+
 	@Inject
 	private Synchronizer synchronizer;
 
 	@Inject
 	private DataStore dataStore;
 
+	@Inject
+	private OverdubBufferPool overdubBufferPool;
+
+	@Inject
+	private MeterFeed meterFeed;
+
+	@Inject
+	private WaveformCache waveformCache;
+
+	@Inject
+	private SampleFitter sampleFitter;
+
 	private InputChannel inputChannel;
+	private LevelMeter levelMeter;
+
+	private PcmBuffer recordedSample;
+	private TakeWriter recordedTake;
+	private TakeWriter recordingTake;
+	private WaveformPyramid.Builder recordedWaveform;
+	private WaveformPyramid.Builder recordingWaveform;
+	private OverdubBuffer overdubBuffer;
+	private OverdubBuffer recordedOverdub;
+	private OverdubBuffer recordingOverdub;
 
-	private byte[] recordedSample;
-	private ByteArrayOutputStream recordingSample;
-	// private ByteArrayOutputStream monitoringSample;
+	private final CaptureRingBuffer captureBuffer = new CaptureRingBuffer(CAPTURE_BUFFER_SIZE);
+	private final List<CaptureConsumer> captureConsumers = new ArrayList<>();
+	private CaptureConsumer recordingConsumer;
+	private Thread captureThread;
+	private volatile boolean capturing;
 
-	private List<AudioDataListener> audioDataListeners = new ArrayList<>();
+	public CaptureConsumer addAudioDataListener(AudioDataListener audioDataListener) {
+		CaptureConsumer captureConsumer = new CaptureConsumer("Capture-" + this.inputChannel.getId() + "-" + this.captureConsumers.size(),
+				this.captureBuffer, audioDataListener, this.getCaptureBlockSize());
+		this.captureConsumers.add(captureConsumer);
+		captureConsumer.start();
+		return captureConsumer;
+	}
 
-	public void addAudioDataListener(AudioDataListener audioDataListener) {
-		this.audioDataListeners.add(audioDataListener);
+	protected int getCaptureBlockSize() {
+		return this.appConfig.getPeriodFrames() * this.appConfig.getAudioFormat().getFrameSize();
 	}
 
-	protected void triggerNewAudioData(byte[] data) {
-		for (AudioDataListener audioDataListener : this.audioDataListeners) {
-			audioDataListener.newAudioData(data);
+	protected boolean isCapturing() {
+		return this.capturing;
+	}
+
+	protected void capture(byte[] data, int offset, int length) {
+		if (this.levelMeter != null) {
+			this.levelMeter.process(data, offset, length);
+		}
+		this.captureBuffer.write(data, offset, length);
+	}
+
+	private synchronized void startCapture() {
+		if (!this.capturing) {
+			this.capturing = true;
+			try {
+				this.captureThread = this.getRecordThread();
+			} catch (RuntimeException e) {
+				log.error("Unable to start capturing [" + this.inputChannel.getId() + "]", e);
+				this.capturing = false;
+				return;
+			}
+			this.captureThread.start();
 		}
 	}
 
@@ -50,14 +107,18 @@ public abstract class AudioSource implements LoopListener, AudioDataListener {
 		return this.inputChannel;
 	}
 
-	protected byte[] getRecordedSample() {
+	protected PcmBuffer getRecordedSample() {
 		return this.recordedSample;
 	}
 
+	/**
+	 * Starts capturing, which keeps running while the channel exists so its
+	 * level is metered even when it is not recording.
+	 */
 	public void initialize() {
-		this.addAudioDataListener(this);
+		this.recordingConsumer = this.addAudioDataListener(this);
 		this.setRecordingState(RecordingState.STOPPED);
-
+		this.startCapture();
 	}
 
 	public void setMonitoring(boolean monitoring) {
@@ -67,6 +128,7 @@ public abstract class AudioSource implements LoopListener, AudioDataListener {
 
 	public void setInputChannel(InputChannel inputChannel) {
 		this.inputChannel = inputChannel;
+		this.levelMeter = this.meterFeed.getMeter(inputChannel);
 	}
 
 	public RecordingState getRecordingState() {
@@ -75,6 +137,12 @@ public abstract class AudioSource implements LoopListener, AudioDataListener {
 
 	public void startRecord() {
 		if (this.inputChannel.getRecordingState() == RecordingState.STOPPED) {
+			Loop currentLoop = this.dataStore.getCurrentLoop();
+			if (this.overdubBuffer == null && currentLoop != null && currentLoop.getDataLength() > 0) {
+				this.overdubBuffer = this.overdubBufferPool.acquire(this.getLoopFrames(currentLoop));
+			}
+			// retried here in case the input line was busy when the channel was created
+			this.startCapture();
 			this.setRecordingState(RecordingState.WAITING);
 			this.synchronizer.addLoopListerner(this);
 		}
@@ -83,30 +151,58 @@ public abstract class AudioSource implements LoopListener, AudioDataListener {
 	public void stopRecord() {
 		this.setRecordingState(RecordingState.STOPPED);
 		this.synchronizer.removeLoopListerner(this);
-		if (!this.inputChannel.isOverdubbing()) {
-			this.recordedSample = this.recordingSample.toByteArray();
+		if (!this.inputChannel.isOverdubbing() && this.recordedTake == null && this.recordedOverdub == null) {
+			this.takeRecording(0);
 		}
-		if (this.recordedSample != null) {
+		this.discardRecording();
+		if (this.overdubBuffer != null) {
+			this.overdubBufferPool.release(this.overdubBuffer);
+			this.overdubBuffer = null;
+		}
+		if (this.recordedTake != null || this.recordedOverdub != null) {
 			Loop currentLoop = this.dataStore.getCurrentLoop();
 			Sample sample = new Sample();
 			Long nextSampleId = dataStore.getNextSampleId();
 			log.info("new sample id " + nextSampleId);
 			sample.setId(nextSampleId);
 			sample.setChannelId(this.inputChannel.getId());
+			if (this.recordedOverdub != null) {
+				this.recordedSample = this.recordedOverdub.getData();
+				this.recordedOverdub = null;
+			} else {
+				try {
+					this.recordedSample = this.recordedTake.finish(Paths.get(this.appConfig.getDataPath(), nextSampleId + ".sample"),
+							this.appConfig.getAudioFormat());
+				} catch (IOException e) {
+					log.error("Unable to store take [" + nextSampleId + "]", e);
+					this.recordedTake.discard();
+					this.recordedTake = null;
+					return;
+				}
+				this.recordedTake = null;
+			}
+			WaveformPyramid.Builder waveform = this.recordedWaveform;
+			this.recordedWaveform = null;
 			if (currentLoop.getSamples().isEmpty()) {
 				long sampleLength = this.getSampleLength();
 				this.synchronizer.setLength(sampleLength);
 				currentLoop.setTimeLength(sampleLength);
-				currentLoop.setDataLength(this.recordedSample.length);
+				currentLoop.setDataLength(this.recordedSample.getByteLength());
+				sample.setData(this.recordedSample);
+			} else if (this.recordedSample.getByteLength() == currentLoop.getDataLength()) {
 				sample.setData(this.recordedSample);
 			} else {
-				byte[] adaptedData = Arrays.copyOf(this.recordedSample, currentLoop.getDataLength());
-				sample.setData(adaptedData);
+				sample.setData(this.recordedSample.copyOf(currentLoop.getDataLength() / this.recordedSample.getFrameSize()));
+			}
+			if (waveform != null && sample.getData() == this.recordedSample) {
+				this.waveformCache.put(nextSampleId, waveform.build());
 			}
 			dataStore.updateLoop(currentLoop);
 			dataStore.createSample(currentLoop.getId(), sample);
+			if (sample.getData() != this.recordedSample && this.appConfig.isFitSamplesToLoop()) {
+				this.sampleFitter.fit(currentLoop.getId(), sample, this.recordedSample, sample.getData().getFrameCount());
+			}
 			this.recordedSample = null;
-			this.recordingSample = null;
 		}
 	}
 
@@ -119,18 +215,20 @@ public abstract class AudioSource implements LoopListener, AudioDataListener {
 	protected abstract Thread getRecordThread();
 
 	@Override
-	public void loopStarted(boolean firstLoop) {
-		log.info("Loop Started [firstLoop=" + firstLoop + "]");
+	public void loopStarted(boolean firstLoop, long boundaryFrame) {
+		log.info("Loop Started [firstLoop=" + firstLoop + "][frame=" + boundaryFrame + "]");
 		if (this.inputChannel.getRecordingState() == RecordingState.WAITING) {
 			this.inputChannel.setOverdubbing(!firstLoop);
 			this.setRecordingState(RecordingState.RECORDING);
-			this.recordedSample = null;
-			this.recordingSample = new ByteArrayOutputStream();
-			this.getRecordThread().start();
+			this.startTake(boundaryFrame);
 		} else if (this.inputChannel.getRecordingState() == RecordingState.RECORDING) {
-			this.recordedSample = this.recordingSample.toByteArray();
-			this.recordingSample = new ByteArrayOutputStream();
-			log.info("recorded sample " + recordedSample.length);
+			// what was captured after the boundary is not part of the take
+			this.takeRecording(this.getBytesSince(boundaryFrame));
+			if (this.recordedTake != null) {
+				log.info("recorded sample " + this.recordedTake.getLength());
+			} else if (this.recordedOverdub != null) {
+				log.info("recorded overdub " + this.recordedOverdub.getFrameCount());
+			}
 			stopRecord();
 		} else {
 			this.synchronizer.removeLoopListerner(this);
@@ -143,13 +241,94 @@ public abstract class AudioSource implements LoopListener, AudioDataListener {
 		stopRecord();
 	}
 
+	private int getLoopFrames(Loop loop) {
+		return loop.getDataLength() / this.appConfig.getAudioFormat().getFrameSize();
+	}
+
+	/**
+	 * @return the bytes captured since the transport passed
+	 *         {@code boundaryFrame}, taking the capture to run in step with
+	 *         the transport
+	 */
+	private int getBytesSince(long boundaryFrame) {
+		long frames = this.synchronizer.getFramesSince(boundaryFrame);
+		return (int) Math.min(frames * this.appConfig.getAudioFormat().getFrameSize(), CAPTURE_BUFFER_SIZE);
+	}
+
+	private void startTake(long boundaryFrame) {
+		synchronized (this.recordingConsumer) {
+			// the take starts at the boundary, with what was captured since
+			// but not before
+			long lagFrames = this.synchronizer.getFramesSince(boundaryFrame);
+			int keptFrames = this.recordingConsumer.skip(this.getBytesSince(boundaryFrame))
+					/ this.appConfig.getAudioFormat().getFrameSize();
+			this.recordedTake = null;
+			this.recordedOverdub = null;
+			this.recordedWaveform = null;
+			Loop currentLoop = this.dataStore.getCurrentLoop();
+			if (this.inputChannel.isOverdubbing() && this.overdubBuffer != null
+					&& this.overdubBuffer.getFrameCount() == this.getLoopFrames(currentLoop)) {
+				this.recordingOverdub = this.overdubBuffer;
+				this.overdubBuffer = null;
+				// loop phase of the oldest byte kept, the boundary is the loop start
+				long startFrame = lagFrames - keptFrames;
+				this.recordingOverdub.start(startFrame);
+				this.recordingWaveform = new WaveformPyramid.Builder(this.appConfig.getAudioFormat().getChannels(),
+						this.recordingOverdub.getFrameCount(), startFrame);
+				return;
+			}
+			try {
+				this.recordingTake = TakeWriter.create(Paths.get(this.appConfig.getDataPath()),
+						"take-" + this.inputChannel.getId() + "-", this.getCaptureBlockSize());
+				this.recordingWaveform = new WaveformPyramid.Builder(this.appConfig.getAudioFormat().getChannels());
+			} catch (IOException e) {
+				log.error("Unable to create take file", e);
+			}
+		}
+	}
+
+	private void takeRecording(int leaveBytes) {
+		synchronized (this.recordingConsumer) {
+			this.recordingConsumer.drain(leaveBytes);
+			this.recordedTake = this.recordingTake;
+			this.recordedOverdub = this.recordingOverdub;
+			this.recordedWaveform = this.recordingWaveform;
+			this.recordingTake = null;
+			this.recordingOverdub = null;
+			this.recordingWaveform = null;
+		}
+	}
+
+	private void discardRecording() {
+		synchronized (this.recordingConsumer) {
+			this.recordingConsumer.drain();
+			if (this.recordingTake != null) {
+				this.recordingTake.discard();
+				this.recordingTake = null;
+			}
+			this.recordingWaveform = null;
+			if (this.recordingOverdub != null) {
+				this.overdubBufferPool.release(this.recordingOverdub);
+				this.recordingOverdub = null;
+			}
+		}
+	}
+
 	@Override
-	public void newAudioData(byte[] data) {
-		if (this.getInputChannel().getRecordingState() == RecordingState.RECORDING) {
-			if (this.recordingSample == null) {
-				this.recordingSample = new ByteArrayOutputStream();
+	public void newAudioData(byte[] data, int offset, int length) {
+		if (this.getInputChannel().getRecordingState() != RecordingState.RECORDING) {
+			return;
+		}
+		if (this.recordingOverdub != null) {
+			this.recordingOverdub.write(data, offset, length);
+			this.recordingWaveform.add(data, offset, length);
+		} else if (this.recordingTake != null) {
+			try {
+				this.recordingTake.write(data, offset, length);
+				this.recordingWaveform.add(data, offset, length);
+			} catch (IOException e) {
+				log.error("Unable to write take", e);
 			}
-			this.recordingSample.write(data, 0, data.length);
 		}
 	}
 
@@ -158,40 +337,4 @@ public abstract class AudioSource implements LoopListener, AudioDataListener {
 		this.inputChannel.setRecordingState(recordingState);
 		this.dataStore.updateChannel(this.inputChannel);
 	}
-
-	// private void updateMonitoring(int monitoringCount, byte[] buffer, int
-	// bytesRead) {
-	// if (Recorder.this.inputChannel.isMonitoring()) {
-	// if (Recorder.this.monitoringSample == null)
-	// Recorder.this.monitoringSample = new ByteArrayOutputStream();
-	// Recorder.this.monitoringSample.write(buffer, 0, bytesRead);
-	// monitoringCount++;
-	// int aggregation = 60000; // 2000;
-	// if (monitoringCount % aggregation == 0) {
-	// byte[] byteArray = Recorder.this.monitoringSample.toByteArray();
-	// float[] samples = new float[byteArray.length / 2];
-	// for (int i = 0; i < byteArray.length; i += 2) {
-	// byte b1 = byteArray[i];
-	// byte b2 = byteArray[i + 1];
-	// if (Recorder.this.appConfig.getAudioFormat().isBigEndian()) {
-	// samples[i / 2] = (b1 << 8 | b2 & 0xFF) / 32768f;
-	// } else {
-	// samples[i / 2] = (b2 << 8 | b1 & 0xFF) / 32768f;
-	// }
-	// }
-	// double value = 0;
-	// for (float sample : samples) {
-	// value += sample * sample;
-	// }
-	// float rms = (float) Math.sqrt(value / (samples.length));
-	// Recorder.this.inputChannel.setLevel(rms);
-	// Recorder.this.eventManager.addEvent(new
-	// ChannelUpdated(Recorder.this.inputChannel));
-	// monitoringCount = 0;
-	// Recorder.this.monitoringSample = null;
-	// }
-	// } else {
-	// Recorder.this.monitoringSample = null;
-	// }
-	// }
 }
@@ -0,0 +1,70 @@
+package ch.sulco.yal.dsp.audio;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+public class CaptureConsumer extends Thread {
+
+	private static final long POLL_INTERVAL = TimeUnit.MILLISECONDS.toNanos(2);
+
+	private final CaptureRingBuffer.Cursor cursor;
+	private final AudioDataListener audioDataListener;
+	private final byte[] block;
+
+	CaptureConsumer(String name, CaptureRingBuffer captureBuffer, AudioDataListener audioDataListener, int blockSize) {
+		super(name);
+		this.setDaemon(true);
+		this.cursor = captureBuffer.newCursor();
+		this.audioDataListener = audioDataListener;
+		this.block = new byte[blockSize];
+	}
+
+	public long getOverrunBytes() {
+		return this.cursor.getOverrunBytes();
+	}
+
+	/**
+	 * Drops everything captured so far, except the newest {@code keepBytes},
+	 * without handing it to the listener.
+	 *
+	 * @return the number of bytes kept
+	 */
+	public synchronized int skip(int keepBytes) {
+		return this.cursor.keepNewest(keepBytes);
+	}
+
+	/**
+	 * Hands everything captured so far to the listener, except the newest
+	 * {@code leaveBytes}.
+	 */
+	public synchronized int drain(int leaveBytes) {
+		int total = 0;
+		int remaining = this.cursor.available() - leaveBytes;
+		int count;
+		while (remaining > 0 && (count = this.cursor.read(this.block, 0, Math.min(remaining, this.block.length))) > 0) {
+			this.audioDataListener.newAudioData(this.block, 0, count);
+			total += count;
+			remaining -= count;
+		}
+		return total;
+	}
+
+	public synchronized int drain() {
+		int total = 0;
+		int count;
+		while ((count = this.cursor.read(this.block, 0, this.block.length)) > 0) {
+			this.audioDataListener.newAudioData(this.block, 0, count);
+			total += count;
+		}
+		return total;
+	}
+
+	@Override
+	public void run() {
+		while (!this.isInterrupted()) {
+			if (this.drain() == 0) {
+				LockSupport.parkNanos(POLL_INTERVAL);
+			}
+		}
+	}
+}
@@ -0,0 +1,124 @@
+package ch.sulco.yal.dsp.audio;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Single-producer ring buffer for captured audio. The producer never waits:
+ * a cursor that falls behind the oldest byte the producer may be writing,
+ * one capacity less the largest block, skips ahead and counts the lost bytes
+ * as overrun.
+ */
+public class CaptureRingBuffer {
+
+	private final byte[] buffer;
+	private final int mask;
+	private final AtomicLong writePosition = new AtomicLong();
+	private volatile int maxWrite;
+
+	public CaptureRingBuffer(int capacity) {
+		if (capacity <= 0 || Integer.bitCount(capacity) != 1) {
+			throw new IllegalArgumentException("Capacity must be a power of two [" + capacity + "]");
+		}
+		this.buffer = new byte[capacity];
+		this.mask = capacity - 1;
+	}
+
+	public int getCapacity() {
+		return this.buffer.length;
+	}
+
+	public long getWritePosition() {
+		return this.writePosition.get();
+	}
+
+	public void write(byte[] data, int offset, int length) {
+		if (length > this.buffer.length) {
+			throw new IllegalArgumentException("Block larger than buffer [" + length + "]");
+		}
+		if (length > this.maxWrite) {
+			// raised before copying so readers already keep clear of this block
+			this.maxWrite = length;
+		}
+		long position = this.writePosition.get();
+		int index = (int) (position & this.mask);
+		int first = Math.min(length, this.buffer.length - index);
+		System.arraycopy(data, offset, this.buffer, index, first);
+		System.arraycopy(data, offset + first, this.buffer, 0, length - first);
+		this.writePosition.lazySet(position + length);
+	}
+
+	/**
+	 * @return the oldest position that cannot be overwritten by the block
+	 *         following {@code write}
+	 */
+	private long oldestReadable(long write) {
+		return write + this.maxWrite - this.buffer.length;
+	}
+
+	public Cursor newCursor() {
+		return new Cursor(this.writePosition.get());
+	}
+
+	public class Cursor {
+		private long readPosition;
+		private long overrunBytes;
+
+		private Cursor(long readPosition) {
+			this.readPosition = readPosition;
+		}
+
+		public long getPosition() {
+			return this.readPosition;
+		}
+
+		public long getOverrunBytes() {
+			return this.overrunBytes;
+		}
+
+		/**
+		 * Moves this cursor back or ahead so that only the newest
+		 * {@code bytes}, as far as they are still buffered, are left to read.
+		 *
+		 * @return the number of bytes left to read
+		 */
+		public int keepNewest(int bytes) {
+			long write = CaptureRingBuffer.this.writePosition.get();
+			this.readPosition = Math.max(write - bytes, oldestReadable(write));
+			return (int) (write - this.readPosition);
+		}
+
+		public int available() {
+			long write = CaptureRingBuffer.this.writePosition.get();
+			return (int) (write - Math.max(this.readPosition, oldestReadable(write)));
+		}
+
+		public int read(byte[] data, int offset, int length) {
+			long write = CaptureRingBuffer.this.writePosition.get();
+			this.skipOverrun(write);
+			int count = (int) Math.min(length, write - this.readPosition);
+			if (count <= 0) {
+				return 0;
+			}
+			int index = (int) (this.readPosition & CaptureRingBuffer.this.mask);
+			int first = Math.min(count, CaptureRingBuffer.this.buffer.length - index);
+			System.arraycopy(CaptureRingBuffer.this.buffer, index, data, offset, first);
+			System.arraycopy(CaptureRingBuffer.this.buffer, 0, data, offset + first, count - first);
+			if (this.skipOverrun(CaptureRingBuffer.this.writePosition.get())) {
+				// the producer lapped us while copying, the block is torn
+				return 0;
+			}
+			this.readPosition += count;
+			return count;
+		}
+
+		private boolean skipOverrun(long write) {
+			long oldest = oldestReadable(write);
+			if (this.readPosition < oldest) {
+				this.overrunBytes += oldest - this.readPosition;
+				this.readPosition = oldest;
+				return true;
+			}
+			return false;
+		}
+	}
+}
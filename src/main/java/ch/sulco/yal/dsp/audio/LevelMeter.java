@@ -0,0 +1,55 @@
+package ch.sulco.yal.dsp.audio;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Peak and RMS level of a 16-bit little-endian stream. The audio thread adds
+ * every block as it passes by without allocating; a reader takes the levels
+ * accumulated since its last read.
+ */
+public class LevelMeter {
+
+	private static final float FULL_SCALE = 32768f;
+
+	private final AtomicInteger peak = new AtomicInteger();
+	private final AtomicLong sumOfSquares = new AtomicLong();
+	private final AtomicLong sampleCount = new AtomicLong();
+
+	public void process(byte[] data, int offset, int length) {
+		int end = offset + (length & ~1);
+		int blockPeak = 0;
+		long blockSum = 0;
+		for (int i = offset; i < end; i += 2) {
+			int value = data[i] & 0xFF | data[i + 1] << 8;
+			int magnitude = Math.abs(value);
+			if (magnitude > blockPeak) {
+				blockPeak = magnitude;
+			}
+			blockSum += value * value;
+		}
+		if (blockPeak > this.peak.get()) {
+			this.peak.accumulateAndGet(blockPeak, Math::max);
+		}
+		this.sumOfSquares.addAndGet(blockSum);
+		this.sampleCount.addAndGet((end - offset) / 2);
+	}
+
+	/**
+	 * Takes the peak and RMS level since the last read, both relative to full
+	 * scale. A block added while reading may be split across two reads.
+	 *
+	 * @return false if nothing was processed since the last read
+	 */
+	public boolean read(float[] peakAndRms) {
+		long count = this.sampleCount.getAndSet(0);
+		long sum = this.sumOfSquares.getAndSet(0);
+		int peak = this.peak.getAndSet(0);
+		if (count == 0) {
+			return false;
+		}
+		peakAndRms[0] = peak / FULL_SCALE;
+		peakAndRms[1] = (float) Math.sqrt(sum / (double) count) / FULL_SCALE;
+		return true;
+	}
+}
@@ -0,0 +1,51 @@
+package ch.sulco.yal.dsp.audio;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.inject.Singleton;
+
+import ch.sulco.yal.dm.Channel;
+import ch.sulco.yal.dm.InputChannel;
+
+/**
+ * The level meters of all channels, read together at the UI update rate.
+ */
+@Singleton
+public class MeterFeed {
+
+	private final Map<Long, Registration> meters = new ConcurrentHashMap<>();
+
+	public interface MeterConsumer {
+		void level(long channelId, float peak, float rms);
+	}
+
+	public LevelMeter getMeter(Channel channel) {
+		return this.meters.computeIfAbsent(channel.getId(), id -> new Registration(channel)).meter;
+	}
+
+	/**
+	 * Hands the levels of every channel that processed audio since the last
+	 * read to {@code consumer}; input channels also keep their RMS level.
+	 */
+	public void read(MeterConsumer consumer) {
+		float[] peakAndRms = new float[2];
+		for (Registration registration : this.meters.values()) {
+			if (registration.meter.read(peakAndRms)) {
+				if (registration.channel instanceof InputChannel) {
+					((InputChannel) registration.channel).setLevel(peakAndRms[1]);
+				}
+				consumer.level(registration.channel.getId(), peakAndRms[0], peakAndRms[1]);
+			}
+		}
+	}
+
+	private static class Registration {
+		private final Channel channel;
+		private final LevelMeter meter = new LevelMeter();
+
+		Registration(Channel channel) {
+			this.channel = channel;
+		}
+	}
+}
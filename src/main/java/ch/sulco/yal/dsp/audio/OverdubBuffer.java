@@ -0,0 +1,63 @@
+package ch.sulco.yal.dsp.audio;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import javax.sound.sampled.AudioFormat;
+
+import ch.sulco.yal.dm.PcmBuffer;
+
+/**
+ * Loop-length take buffer. Writes start at the loop phase the capture began
+ * at and wrap at the loop boundary, so the finished take is already aligned.
+ */
+public class OverdubBuffer {
+
+	private static final int CLEAR_BLOCK_BYTES = 64 * 1024;
+
+	private final PcmBuffer data;
+	private final ByteBuffer bytes;
+	private int position;
+
+	OverdubBuffer(int frames, AudioFormat audioFormat) {
+		this.data = PcmBuffer.allocate(frames, audioFormat);
+		this.bytes = this.data.asByteBuffer();
+	}
+
+	public int getFrameCount() {
+		return this.data.getFrameCount();
+	}
+
+	public PcmBuffer getData() {
+		return this.data;
+	}
+
+	public void start(long loopFrame) {
+		this.position = (int) (loopFrame % this.data.getFrameCount()) * this.data.getFrameSize();
+	}
+
+	public void write(byte[] data, int offset, int length) {
+		int limit = this.bytes.limit();
+		while (length > 0) {
+			int count = Math.min(length, limit - this.position);
+			this.bytes.position(this.position);
+			this.bytes.put(data, offset, count);
+			this.position = (this.position + count) % limit;
+			offset += count;
+			length -= count;
+		}
+	}
+
+	void clear() {
+		this.bytes.clear();
+		if (this.bytes.hasArray()) {
+			Arrays.fill(this.bytes.array(), this.bytes.arrayOffset(), this.bytes.arrayOffset() + this.bytes.limit(), (byte) 0);
+		} else {
+			byte[] zeros = new byte[Math.min(CLEAR_BLOCK_BYTES, this.bytes.limit())];
+			while (this.bytes.hasRemaining()) {
+				this.bytes.put(zeros, 0, Math.min(zeros.length, this.bytes.remaining()));
+			}
+		}
+		this.position = 0;
+	}
+}
@@ -0,0 +1,48 @@
+package ch.sulco.yal.dsp.audio;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import ch.sulco.yal.AppConfig;
+
+@Singleton
+public class OverdubBufferPool {
+	private final static Logger log = LoggerFactory.getLogger(OverdubBufferPool.class);
+
+	private static final int MAX_POOLED_BUFFERS = 4;
+
+	@Inject
+	private AppConfig appConfig;
+
+	private final Deque<OverdubBuffer> buffers = new ArrayDeque<>();
+
+	public synchronized OverdubBuffer acquire(int frames) {
+		Iterator<OverdubBuffer> iterator = this.buffers.iterator();
+		while (iterator.hasNext()) {
+			OverdubBuffer buffer = iterator.next();
+			if (buffer.getFrameCount() == frames) {
+				iterator.remove();
+				return buffer;
+			}
+		}
+		log.info("Allocate overdub buffer [frames=" + frames + "]");
+		return new OverdubBuffer(frames, this.appConfig.getAudioFormat());
+	}
+
+	public void release(OverdubBuffer buffer) {
+		buffer.clear();
+		synchronized (this) {
+			if (this.buffers.size() == MAX_POOLED_BUFFERS) {
+				this.buffers.removeFirst();
+			}
+			this.buffers.addLast(buffer);
+		}
+	}
+}
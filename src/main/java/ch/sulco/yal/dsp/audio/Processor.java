@@ -1,8 +1,8 @@
 package ch.sulco.yal.dsp.audio;
 
-import java.util.HashMap;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import javax.annotation.PostConstruct;
 import javax.inject.Inject;
@@ -18,6 +18,7 @@ import com.google.common.collect.FluentIterable;
 import ch.sulco.yal.Application;
 import ch.sulco.yal.dm.Channel;
 import ch.sulco.yal.dm.InputChannel;
+import ch.sulco.yal.dm.Loop;
 import ch.sulco.yal.dm.LooperState;
 import ch.sulco.yal.dm.OutputChannel;
 import ch.sulco.yal.dm.RecordingState;
@@ -44,8 +45,8 @@ public class Processor implements DataEventListener {
 	@Inject
 	private Synchronizer synchronizer;
 
-	private final Map<Long, AudioSource> audioSources = new HashMap<>();
-	private final Map<Long, AudioSink> audioSinks = new HashMap<>();
+	private final Map<Long, AudioSource> audioSources = new ConcurrentHashMap<>();
+	private final Map<Long, AudioSink> audioSinks = new ConcurrentHashMap<>();
 
 	public Set<Long> getSampleIds() {
 		return FluentIterable.from(this.dataStore.getCurrentLoop().getSamples()).transform(new Function<Sample, Long>() {
@@ -87,8 +88,6 @@ public class Processor implements DataEventListener {
 		Optional<AudioSink> firstPlayer = FluentIterable.from(this.audioSinks.values()).first();
 		if (firstPlayer.isPresent()) {
 			firstPlayer.get().startSample(this.dataStore.getCurrentLoopSample(0), true);
-			if (!this.dataStore.getCurrentLoop().isClickTrackMuted())
-				firstPlayer.get().startSample(this.dataStore.getCurrentLoop().getClickTrack(), false);
 		}
 	}
 
@@ -148,27 +147,34 @@ public class Processor implements DataEventListener {
 				OutputChannel outputChannel = (OutputChannel) channel;
 				if (!this.audioSinks.containsKey(outputChannel.getId())) {
 					AudioSink audioSink = Application.injector.getInstance(AudioSink.class);
+					audioSink.setOutputChannel(outputChannel);
 					this.audioSinks.put(outputChannel.getId(), audioSink);
 				}
 			}
 		} else if (event instanceof LooperStateUpdated) {
 			LooperStateUpdated looperStateUpdated = (LooperStateUpdated) event;
+			Loop currentLoop = dataStore.getCurrentLoop();
+			Optional<AudioSink> audioSink = FluentIterable.from(this.audioSinks.values()).first();
 			if (looperStateUpdated.getLooperState() == LooperState.PLAYING) {
-				dataStore.getCurrentLoop().getSamples().stream()
-						.forEach(s -> sampleMutator.startSample(
-								dataStore.getCurrentLoop().getId(),
-								s.getId(),
-								audioSinks.values().stream().findFirst().get(),
-								true));
+				if (audioSink.isPresent()) {
+					currentLoop.getSamples().stream()
+							.forEach(s -> sampleMutator.startSample(
+									currentLoop.getId(),
+									s.getId(),
+									audioSink.get(),
+									true));
+				}
 				synchronizer.startLoop();
 			} else {
 				synchronizer.stopLoop();
-				dataStore.getCurrentLoop().getSamples().stream()
-						.forEach(s -> sampleMutator.stopSample(
-								dataStore.getCurrentLoop().getId(),
-								s.getId(),
-								audioSinks.values().stream().findFirst().get(),
-								true));
+				if (audioSink.isPresent()) {
+					currentLoop.getSamples().stream()
+							.forEach(s -> sampleMutator.stopSample(
+									currentLoop.getId(),
+									s.getId(),
+									audioSink.get(),
+									true));
+				}
 			}
 		}
 	}
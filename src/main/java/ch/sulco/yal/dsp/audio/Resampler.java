@@ -0,0 +1,173 @@
+package ch.sulco.yal.dsp.audio;
+
+import java.util.Arrays;
+
+import ch.sulco.yal.dm.PcmBuffer;
+
+/**
+ * Streaming band-limited resampler. Every output frame is a windowed-sinc
+ * convolution of the surrounding {@link #TAPS} input frames; the kernel is
+ * precomputed for {@link #PHASES} fractional positions and interpolated
+ * between them, so processing a block only multiplies and adds. When
+ * shrinking, the kernel's cutoff is lowered to the new Nyquist frequency.
+ */
+public class Resampler {
+
+	static final int PHASES = 256;
+	static final int TAPS = 32;
+	private static final int HALF_TAPS = TAPS / 2;
+	private static final double KAISER_BETA = 8.6;
+	private static final int BLOCK_FRAMES = 4096;
+
+	private final int channels;
+	private final double step;
+	// TAPS coefficients per phase, one extra phase to interpolate towards
+	private final float[] kernel;
+
+	// interleaved input frames still needed by upcoming output frames
+	private float[] history;
+	private int historyFrames;
+	// position of the next output frame in history
+	private double time;
+
+	/**
+	 * @param ratio
+	 *            output frames per input frame
+	 */
+	public Resampler(int channels, double ratio) {
+		if (ratio <= 0) {
+			throw new IllegalArgumentException("Invalid resampling ratio [" + ratio + "]");
+		}
+		this.channels = channels;
+		this.step = 1 / ratio;
+		this.kernel = createKernel(Math.min(1, ratio));
+		this.history = new float[(TAPS + BLOCK_FRAMES) * channels];
+		// the first output frame is centered on the first input frame
+		this.historyFrames = HALF_TAPS - 1;
+		this.time = HALF_TAPS - 1;
+	}
+
+	private static float[] createKernel(double cutoff) {
+		float[] kernel = new float[(PHASES + 1) * TAPS];
+		double i0Beta = besselI0(KAISER_BETA);
+		for (int phase = 0; phase <= PHASES; phase++) {
+			for (int tap = 0; tap < TAPS; tap++) {
+				double distance = tap - (HALF_TAPS - 1) - phase / (double) PHASES;
+				double x = distance / HALF_TAPS;
+				double window = Math.abs(x) >= 1 ? 0 : besselI0(KAISER_BETA * Math.sqrt(1 - x * x)) / i0Beta;
+				double sinc = distance == 0 ? 1 : Math.sin(Math.PI * cutoff * distance) / (Math.PI * cutoff * distance);
+				kernel[phase * TAPS + tap] = (float) (cutoff * sinc * window);
+			}
+		}
+		return kernel;
+	}
+
+	private static double besselI0(double x) {
+		double sum = 1;
+		double term = 1;
+		for (int k = 1; k < 32; k++) {
+			term *= (x / (2 * k)) * (x / (2 * k));
+			sum += term;
+		}
+		return sum;
+	}
+
+	/**
+	 * @return the most output frames the next call with {@code inputFrames}
+	 *         can produce
+	 */
+	public int getOutputCapacity(int inputFrames) {
+		return (int) Math.ceil((inputFrames + TAPS) / this.step) + 1;
+	}
+
+	/**
+	 * Adds interleaved input frames and writes every output frame that can now
+	 * be computed to {@code output}.
+	 *
+	 * @return the number of output frames written
+	 */
+	public int process(float[] input, int inputFrames, float[] output) {
+		int needed = (this.historyFrames + inputFrames) * this.channels;
+		if (needed > this.history.length) {
+			this.history = Arrays.copyOf(this.history, needed);
+		}
+		System.arraycopy(input, 0, this.history, this.historyFrames * this.channels, inputFrames * this.channels);
+		this.historyFrames += inputFrames;
+
+		int outputFrames = 0;
+		int base = (int) this.time;
+		while (base + HALF_TAPS < this.historyFrames) {
+			double phase = (this.time - base) * PHASES;
+			int phaseIndex = (int) phase;
+			float weight = (float) (phase - phaseIndex);
+			int kernelOffset = phaseIndex * TAPS;
+			int inputOffset = (base - HALF_TAPS + 1) * this.channels;
+			for (int channel = 0; channel < this.channels; channel++) {
+				float sum = 0;
+				for (int tap = 0; tap < TAPS; tap++) {
+					float coefficient = this.kernel[kernelOffset + tap]
+							+ weight * (this.kernel[kernelOffset + TAPS + tap] - this.kernel[kernelOffset + tap]);
+					sum += coefficient * this.history[inputOffset + tap * this.channels + channel];
+				}
+				output[outputFrames * this.channels + channel] = sum;
+			}
+			outputFrames++;
+			this.time += this.step;
+			base = (int) this.time;
+		}
+
+		int consumed = Math.min(this.historyFrames, Math.max(0, base - HALF_TAPS + 1));
+		if (consumed > 0) {
+			System.arraycopy(this.history, consumed * this.channels, this.history, 0,
+					(this.historyFrames - consumed) * this.channels);
+			this.historyFrames -= consumed;
+			this.time -= consumed;
+		}
+		return outputFrames;
+	}
+
+	/**
+	 * Writes the output frames still pending at the end of the input.
+	 */
+	public int flush(float[] output) {
+		return this.process(new float[HALF_TAPS * this.channels], HALF_TAPS, output);
+	}
+
+	/**
+	 * Stretches or shrinks {@code input} to exactly {@code frames} frames.
+	 */
+	public static PcmBuffer fit(PcmBuffer input, int frames) {
+		int channels = input.getChannels();
+		PcmBuffer fitted = PcmBuffer.allocate(frames, channels, input.getFormat());
+		if (input.getFrameCount() == 0 || frames == 0) {
+			return fitted;
+		}
+		Resampler resampler = new Resampler(channels, frames / (double) input.getFrameCount());
+		float[] block = new float[BLOCK_FRAMES * channels];
+		float[] output = new float[resampler.getOutputCapacity(BLOCK_FRAMES) * channels];
+		int written = 0;
+		for (int from = 0; from < input.getFrameCount() && written < frames; from += BLOCK_FRAMES) {
+			int blockFrames = Math.min(BLOCK_FRAMES, input.getFrameCount() - from);
+			for (int frame = 0; frame < blockFrames; frame++) {
+				for (int channel = 0; channel < channels; channel++) {
+					block[frame * channels + channel] = input.getFloat(from + frame, channel);
+				}
+			}
+			written = copy(output, resampler.process(block, blockFrames, output), fitted, written);
+		}
+		if (written < frames) {
+			written = copy(output, resampler.flush(output), fitted, written);
+		}
+		return fitted;
+	}
+
+	private static int copy(float[] output, int outputFrames, PcmBuffer target, int written) {
+		int channels = target.getChannels();
+		for (int frame = 0; frame < outputFrames && written < target.getFrameCount(); frame++, written++) {
+			for (int channel = 0; channel < channels; channel++) {
+				target.setFloat(written, channel, output[frame * channels + channel]);
+			}
+		}
+		return written;
+	}
+}
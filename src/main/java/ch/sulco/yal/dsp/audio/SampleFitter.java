@@ -0,0 +1,54 @@
+package ch.sulco.yal.dsp.audio;
+
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import ch.sulco.yal.dm.PcmBuffer;
+import ch.sulco.yal.dm.Sample;
+import ch.sulco.yal.dsp.DataStore;
+import ch.sulco.yal.dsp.WaveformCache;
+
+/**
+ * Resamples recordings to the length of their loop in the background. The
+ * sample plays its truncated or padded data until the fitted data replaces
+ * it.
+ */
+@Singleton
+public class SampleFitter {
+	private final static Logger log = LoggerFactory.getLogger(SampleFitter.class);
+
+	@Inject
+	private DataStore dataStore;
+
+	@Inject
+	private WaveformCache waveformCache;
+
+	private final ThreadPoolExecutor fitService = new ThreadPoolExecutor(1, 1, 5, TimeUnit.SECONDS,
+			new LinkedBlockingQueue<>(), r -> {
+				Thread thread = new Thread(r, "SampleFitter");
+				thread.setDaemon(true);
+				return thread;
+			});
+
+	public SampleFitter() {
+		this.fitService.allowCoreThreadTimeOut(true);
+	}
+
+	public void fit(Long loopId, Sample sample, PcmBuffer recorded, int frames) {
+		this.fitService.execute(() -> {
+			long start = System.nanoTime();
+			sample.setData(Resampler.fit(recorded, frames));
+			log.info("Sample fitted to loop [id=" + sample.getId() + "][frames=" + recorded.getFrameCount() + "->" + frames
+					+ "][ms=" + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + "]");
+			this.waveformCache.remove(sample.getId());
+			this.dataStore.updateSample(loopId, sample);
+		});
+	}
+}
@@ -0,0 +1,80 @@
+package ch.sulco.yal.dsp.audio;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+import javax.sound.sampled.AudioFormat;
+
+import ch.sulco.yal.dm.PcmBuffer;
+
+/**
+ * Streams a take to a preallocated file while it is captured. The finished
+ * take is moved to its sample file and mapped, so it is never copied onto
+ * the heap.
+ */
+public class TakeWriter {
+
+	public static final String EXTENSION = ".take";
+
+	private static final long PREALLOCATION_SIZE = 16 << 20;
+
+	private final Path file;
+	private final FileChannel channel;
+	private final ByteBuffer block;
+	private long length;
+	private long allocated;
+
+	private TakeWriter(Path file, int blockSize) throws IOException {
+		this.file = file;
+		this.channel = FileChannel.open(file, StandardOpenOption.WRITE, StandardOpenOption.READ);
+		this.block = ByteBuffer.allocateDirect(blockSize);
+	}
+
+	public static TakeWriter create(Path directory, String prefix, int blockSize) throws IOException {
+		Files.createDirectories(directory);
+		return new TakeWriter(Files.createTempFile(directory, prefix, EXTENSION), blockSize);
+	}
+
+	public long getLength() {
+		return this.length;
+	}
+
+	public void write(byte[] data, int offset, int length) throws IOException {
+		if (this.length + length > this.allocated) {
+			this.allocated += Math.max(PREALLOCATION_SIZE, length);
+			this.channel.write(ByteBuffer.allocate(1), this.allocated - 1);
+		}
+		while (length > 0) {
+			int count = Math.min(length, this.block.capacity());
+			this.block.clear();
+			this.block.put(data, offset, count);
+			this.block.flip();
+			while (this.block.hasRemaining()) {
+				this.length += this.channel.write(this.block, this.length);
+			}
+			offset += count;
+			length -= count;
+		}
+	}
+
+	public PcmBuffer finish(Path target, AudioFormat audioFormat) throws IOException {
+		this.channel.truncate(this.length);
+		this.channel.close();
+		Files.move(this.file, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		return PcmBuffer.map(target, audioFormat);
+	}
+
+	public void discard() {
+		try {
+			this.channel.close();
+			Files.deleteIfExists(this.file);
+		} catch (IOException e) {
+			// nothing left to clean up
+		}
+	}
+}
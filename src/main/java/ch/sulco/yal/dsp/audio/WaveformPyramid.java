@@ -0,0 +1,260 @@
+package ch.sulco.yal.dsp.audio;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+import ch.sulco.yal.dm.PcmBuffer;
+import ch.sulco.yal.dm.SampleFormat;
+
+/**
+ * Min/max overview of a sample for drawing its waveform. Level 0 holds one
+ * min/max pair per {@link #BASE_FRAMES} frames across all channels and every
+ * further level halves the previous one, so any zoom level is drawn from the
+ * level closest to one pair per pixel.
+ */
+public class WaveformPyramid {
+
+	public static final int BASE_FRAMES = 256;
+	public static final String EXTENSION = ".peaks";
+
+	private static final int MAGIC = 0x4B414550;
+	private static final byte VERSION = 1;
+
+	private final int frameCount;
+	// level n has one min/max pair per BASE_FRAMES << n frames
+	private final short[][] levels;
+
+	private WaveformPyramid(int frameCount, short[][] levels) {
+		this.frameCount = frameCount;
+		this.levels = levels;
+	}
+
+	public static WaveformPyramid of(PcmBuffer pcm) {
+		Builder builder = new Builder(pcm.getChannels());
+		for (int frame = 0; frame < pcm.getFrameCount(); frame++) {
+			for (int channel = 0; channel < pcm.getChannels(); channel++) {
+				builder.add(pcm.getFormat() == SampleFormat.PCM_SIGNED_16 ? pcm.getShort(frame, channel)
+						: toShort(pcm.getFloat(frame, channel)));
+			}
+		}
+		return builder.build();
+	}
+
+	private static short toShort(float value) {
+		return (short) Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, Math.round(value * 32768f)));
+	}
+
+	public int getFrameCount() {
+		return this.frameCount;
+	}
+
+	public int getLevelCount() {
+		return this.levels.length;
+	}
+
+	/**
+	 * @return a min/max pair for each of {@code width} pixels spanning
+	 *         {@code fromFrame} to {@code toFrame}, looking at no more than
+	 *         three pairs per pixel
+	 */
+	public short[] getPeaks(int fromFrame, int toFrame, int width) {
+		if (width <= 0) {
+			throw new IllegalArgumentException("Width must be positive [" + width + "]");
+		}
+		short[] peaks = new short[2 * width];
+		fromFrame = Math.max(0, fromFrame);
+		toFrame = Math.min(this.frameCount, toFrame);
+		if (toFrame <= fromFrame) {
+			return peaks;
+		}
+		double framesPerPixel = (toFrame - fromFrame) / (double) width;
+		int level = 0;
+		while (level + 1 < this.levels.length && (BASE_FRAMES << level + 1) <= framesPerPixel) {
+			level++;
+		}
+		short[] pairs = this.levels[level];
+		int pairFrames = BASE_FRAMES << level;
+		int lastPair = pairs.length / 2 - 1;
+		for (int x = 0; x < width; x++) {
+			int start = fromFrame + (int) (x * framesPerPixel);
+			int end = fromFrame + (int) ((x + 1) * framesPerPixel);
+			int first = Math.min(start / pairFrames, lastPair);
+			int last = Math.min(Math.max(first, (end - 1) / pairFrames), lastPair);
+			short min = Short.MAX_VALUE;
+			short max = Short.MIN_VALUE;
+			for (int pair = first; pair <= last; pair++) {
+				min = (short) Math.min(min, pairs[2 * pair]);
+				max = (short) Math.max(max, pairs[2 * pair + 1]);
+			}
+			peaks[2 * x] = min;
+			peaks[2 * x + 1] = max;
+		}
+		return peaks;
+	}
+
+	public ByteBuffer toByteBuffer() {
+		int length = 20;
+		for (short[] level : this.levels) {
+			length += 4 + level.length * 2;
+		}
+		ByteBuffer data = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+		data.putInt(MAGIC);
+		data.put(VERSION);
+		data.put((byte) 0);
+		data.putShort((short) 0);
+		data.putInt(this.frameCount);
+		data.putInt(BASE_FRAMES);
+		data.putInt(this.levels.length);
+		for (short[] level : this.levels) {
+			data.putInt(level.length / 2);
+			data.asShortBuffer().put(level);
+			data.position(data.position() + level.length * 2);
+		}
+		data.flip();
+		return data;
+	}
+
+	public static WaveformPyramid read(ByteBuffer data) throws IOException {
+		data.order(ByteOrder.LITTLE_ENDIAN);
+		if (data.remaining() < 20 || data.getInt() != MAGIC || data.get() != VERSION) {
+			throw new IOException("Not a waveform overview");
+		}
+		data.get();
+		data.getShort();
+		int frameCount = data.getInt();
+		if (data.getInt() != BASE_FRAMES) {
+			throw new IOException("Unsupported waveform resolution");
+		}
+		short[][] levels = new short[data.getInt()][];
+		for (int level = 0; level < levels.length; level++) {
+			levels[level] = new short[2 * data.getInt()];
+			data.asShortBuffer().get(levels[level]);
+			data.position(data.position() + levels[level].length * 2);
+		}
+		return new WaveformPyramid(frameCount, levels);
+	}
+
+	/**
+	 * Collects level 0 from interleaved samples as they are recorded, so the
+	 * data never has to be scanned again; the coarser levels are derived from
+	 * it when built.
+	 */
+	public static class Builder {
+		private final int channels;
+		private short[] basePairs = new short[512];
+		private int pairCount;
+		private int channel;
+		private int frameCount;
+		private short min = Short.MAX_VALUE;
+		private short max = Short.MIN_VALUE;
+		// only for loop-length overviews, see the constructor
+		private final boolean looped;
+		private int position;
+
+		public Builder(int channels) {
+			this.channels = channels;
+			this.looped = false;
+		}
+
+		/**
+		 * Collects the overview of a silent loop-length buffer that is written
+		 * from {@code startFrame} on and wraps at the end, like an
+		 * {@link OverdubBuffer}.
+		 */
+		public Builder(int channels, int frameCount, long startFrame) {
+			this.channels = channels;
+			this.looped = true;
+			this.frameCount = frameCount;
+			this.pairCount = (frameCount + BASE_FRAMES - 1) / BASE_FRAMES;
+			this.basePairs = new short[2 * this.pairCount];
+			this.position = (int) (startFrame % frameCount);
+		}
+
+		/**
+		 * Adds 16-bit little-endian interleaved samples.
+		 */
+		public void add(byte[] data, int offset, int length) {
+			int end = offset + (length & ~1);
+			for (int i = offset; i < end; i += 2) {
+				this.add((short) (data[i] & 0xFF | data[i + 1] << 8));
+			}
+		}
+
+		public void add(short value) {
+			if (this.looped) {
+				this.addLooped(value);
+				return;
+			}
+			if (value < this.min) {
+				this.min = value;
+			}
+			if (value > this.max) {
+				this.max = value;
+			}
+			if (++this.channel == this.channels) {
+				this.channel = 0;
+				if (++this.frameCount % BASE_FRAMES == 0) {
+					this.addPair();
+				}
+			}
+		}
+
+		private void addLooped(short value) {
+			// pairs start out as silence and are only widened, which is exact as
+			// long as no frame is written twice
+			int pair = 2 * (this.position / BASE_FRAMES);
+			if (value < this.basePairs[pair]) {
+				this.basePairs[pair] = value;
+			}
+			if (value > this.basePairs[pair + 1]) {
+				this.basePairs[pair + 1] = value;
+			}
+			if (++this.channel == this.channels) {
+				this.channel = 0;
+				this.position = (this.position + 1) % this.frameCount;
+			}
+		}
+
+		private void addPair() {
+			if (2 * this.pairCount == this.basePairs.length) {
+				this.basePairs = Arrays.copyOf(this.basePairs, 2 * this.basePairs.length);
+			}
+			this.basePairs[2 * this.pairCount] = this.min;
+			this.basePairs[2 * this.pairCount + 1] = this.max;
+			this.pairCount++;
+			this.min = Short.MAX_VALUE;
+			this.max = Short.MIN_VALUE;
+		}
+
+		public WaveformPyramid build() {
+			short[] base = Arrays.copyOf(this.basePairs, 2 * this.pairCount);
+			if (!this.looped && this.frameCount % BASE_FRAMES != 0) {
+				base = Arrays.copyOf(base, base.length + 2);
+				base[base.length - 2] = this.min;
+				base[base.length - 1] = this.max;
+			}
+			int levelCount = 1;
+			for (int pairs = base.length / 2; pairs > 1; pairs = (pairs + 1) / 2) {
+				levelCount++;
+			}
+			short[][] levels = new short[levelCount][];
+			levels[0] = base;
+			for (int level = 1; level < levelCount; level++) {
+				short[] finer = levels[level - 1];
+				int finerPairs = finer.length / 2;
+				short[] coarser = new short[2 * ((finerPairs + 1) / 2)];
+				for (int pair = 0; pair < finerPairs; pair++) {
+					int target = pair / 2;
+					boolean first = pair % 2 == 0;
+					coarser[2 * target] = first ? finer[2 * pair] : (short) Math.min(coarser[2 * target], finer[2 * pair]);
+					coarser[2 * target + 1] = first ? finer[2 * pair + 1]
+							: (short) Math.max(coarser[2 * target + 1], finer[2 * pair + 1]);
+				}
+				levels[level] = coarser;
+			}
+			return new WaveformPyramid(this.frameCount, levels);
+		}
+	}
+}
@@ -2,9 +2,17 @@ package ch.sulco.yal.dsp.audio.onboard;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Deque;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 import javax.inject.Inject;
 import javax.inject.Singleton;
@@ -35,6 +43,12 @@ import ch.sulco.yal.dm.InputChannel;
 import ch.sulco.yal.dm.OutputChannel;
 import ch.sulco.yal.settings.AudioSettings;
 
+/**
+ * Access to the sound system. Lines are opened through a pool: a released
+ * line stays open and is handed out again for the same line and format, and
+ * lines that stay idle longer than {@link AppConfig#getIdleLineTimeout()}
+ * are closed.
+ */
 @Singleton
 public class AudioSystemProvider {
 
@@ -43,6 +57,10 @@ public class AudioSystemProvider {
 	@Inject
 	private AppConfig appConfig;
 
+	private final Map<String, Deque<IdleLine>> idleLines = new HashMap<>();
+	private final Map<Line, String> leasedLines = new IdentityHashMap<>();
+	private ScheduledExecutorService evictionService;
+
 	public Clip getClip(AudioFormat format, byte[] data, int offset, int bufferSize) throws LineUnavailableException {
 		if (format == null) {
 			format = this.appConfig.getAudioFormat();
@@ -52,6 +70,137 @@ public class AudioSystemProvider {
 		return clip;
 	}
 
+	/**
+	 * @return an open, stopped output line; hand it back with
+	 *         {@link #release(Line)}
+	 */
+	public SourceDataLine acquireSourceDataLine(Line.Info info, AudioFormat format, int bufferSize)
+			throws LineUnavailableException {
+		if (info == null) {
+			info = this.getSourceLineInfo();
+		}
+		String key = "SourceDataLine|" + info + "|" + format + "|" + bufferSize;
+		SourceDataLine line = (SourceDataLine) this.reuse(key);
+		if (line == null) {
+			line = this.getSourceDataLine(info);
+			line.open(format, bufferSize);
+			this.lease(line, key);
+		}
+		return line;
+	}
+
+	/**
+	 * @return an open, stopped input line; hand it back with
+	 *         {@link #release(Line)}
+	 */
+	public TargetDataLine acquireTargetDataLine(Line.Info info, AudioFormat format) throws LineUnavailableException {
+		if (info == null) {
+			info = this.getTargetLineInfo();
+		}
+		String key = "TargetDataLine|" + info + "|" + format;
+		TargetDataLine line = (TargetDataLine) this.reuse(key);
+		if (line == null) {
+			line = (TargetDataLine) this.getLine(info);
+			line.open(format);
+			this.lease(line, key);
+		}
+		return line;
+	}
+
+	/**
+	 * Stops a line from one of the acquire methods and keeps it open for the
+	 * next caller asking for the same line and format.
+	 */
+	public void release(Line line) {
+		String key;
+		synchronized (this) {
+			key = this.leasedLines.remove(line);
+		}
+		if (key == null) {
+			line.close();
+			return;
+		}
+		if (line instanceof DataLine) {
+			((DataLine) line).stop();
+			((DataLine) line).flush();
+		}
+		synchronized (this) {
+			this.idleLines.computeIfAbsent(key, k -> new ArrayDeque<>()).push(new IdleLine(line, System.currentTimeMillis()));
+			this.startEviction();
+		}
+	}
+
+	/**
+	 * Closes every line that has been idle longer than the configured timeout.
+	 */
+	public void evictIdleLines() {
+		long evictBefore = System.currentTimeMillis() - this.appConfig.getIdleLineTimeout();
+		List<Line> evicted = new ArrayList<>();
+		synchronized (this) {
+			for (Iterator<Deque<IdleLine>> lines = this.idleLines.values().iterator(); lines.hasNext();) {
+				Deque<IdleLine> idle = lines.next();
+				// most recently released first, so the stale ones are at the end
+				while (!idle.isEmpty() && idle.peekLast().releasedAt <= evictBefore) {
+					evicted.add(idle.removeLast().line);
+				}
+				if (idle.isEmpty()) {
+					lines.remove();
+				}
+			}
+		}
+		for (Line line : evicted) {
+			line.close();
+		}
+		if (!evicted.isEmpty()) {
+			log.info("Closed idle lines [count=" + evicted.size() + "][open=" + this.getOpenLineCount() + "]");
+		}
+	}
+
+	public synchronized int getOpenLineCount() {
+		return this.leasedLines.size() + this.getIdleLineCount();
+	}
+
+	public synchronized int getIdleLineCount() {
+		return this.idleLines.values().stream().mapToInt(Deque::size).sum();
+	}
+
+	public long getMicrosecondLength(long frameCount) {
+		return (long) (frameCount * 1000000L / (double) this.appConfig.getSampleRate());
+	}
+
+	public long getFrameLength(long microseconds) {
+		return (long) (microseconds * (double) this.appConfig.getSampleRate() / 1000000);
+	}
+
+	private synchronized Line reuse(String key) {
+		Deque<IdleLine> idle = this.idleLines.get(key);
+		while (idle != null && !idle.isEmpty()) {
+			Line line = idle.pop().line;
+			if (line.isOpen()) {
+				this.leasedLines.put(line, key);
+				return line;
+			}
+		}
+		return null;
+	}
+
+	private synchronized void lease(Line line, String key) {
+		this.leasedLines.put(line, key);
+		log.info("Opened line [" + key + "][open=" + this.getOpenLineCount() + "]");
+	}
+
+	private void startEviction() {
+		if (this.evictionService == null) {
+			this.evictionService = Executors.newSingleThreadScheduledExecutor(r -> {
+				Thread thread = new Thread(r, "LineEviction");
+				thread.setDaemon(true);
+				return thread;
+			});
+			long period = Math.max(1, this.appConfig.getIdleLineTimeout() / 2);
+			this.evictionService.scheduleAtFixedRate(this::evictIdleLines, period, period, TimeUnit.MILLISECONDS);
+		}
+	}
+
 	public AudioInputStream getAudioInputStream(File file) throws UnsupportedAudioFileException, IOException {
 		return AudioSystem.getAudioInputStream(file);
 	}
@@ -186,6 +335,23 @@ public class AudioSystemProvider {
 		return AudioSystem.getLine(info);
 	}
 
+	public SourceDataLine getSourceDataLine(Line.Info info) throws LineUnavailableException {
+		if (info == null) {
+			info = this.getSourceLineInfo();
+		}
+		return (SourceDataLine) AudioSystem.getLine(info);
+	}
+
+	private static class IdleLine {
+		private final Line line;
+		private final long releasedAt;
+
+		IdleLine(Line line, long releasedAt) {
+			this.line = line;
+			this.releasedAt = releasedAt;
+		}
+	}
+
 	private Info getTargetLineInfo() {
 		return new DataLine.Info(TargetDataLine.class, this.appConfig.getAudioFormat());
 	}
@@ -1,7 +1,12 @@
 package ch.sulco.yal.dsp.audio.onboard;
 
 public interface LoopListener {
-	public void loopStarted(boolean firstLoop);
+	/**
+	 * @param boundaryFrame
+	 *            transport frame the loop started at, the call itself comes
+	 *            later from the synchronizer thread
+	 */
+	public void loopStarted(boolean firstLoop, long boundaryFrame);
 
 	public void loopStopped();
 }
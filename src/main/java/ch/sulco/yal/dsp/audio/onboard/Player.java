@@ -1,75 +1,217 @@
 package ch.sulco.yal.dsp.audio.onboard;
 
-import java.util.HashMap;
+import java.util.Arrays;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.LockSupport;
 
 import javax.inject.Inject;
-import javax.sound.sampled.BooleanControl;
-import javax.sound.sampled.BooleanControl.Type;
-import javax.sound.sampled.Clip;
+import javax.sound.sampled.AudioFormat;
 import javax.sound.sampled.LineUnavailableException;
+import javax.sound.sampled.SourceDataLine;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import ch.sulco.yal.AppConfig;
+import ch.sulco.yal.dm.OutputChannel;
 import ch.sulco.yal.dm.Sample;
+import ch.sulco.yal.dsp.ClickTrackGenerator;
 import ch.sulco.yal.dsp.audio.AudioSink;
+import ch.sulco.yal.dsp.audio.LevelMeter;
 
 public class Player extends AudioSink {
 	private final static Logger log = LoggerFactory.getLogger(Player.class);
 
+	private static final int LINE_PERIODS = 4;
+
+	@Inject
+	private AppConfig appConfig;
+
 	@Inject
 	private AudioSystemProvider audioSystemProvider;
 
-	private Map<Long, Clip> idToClipMap = new HashMap<>();
+	@Inject
+	private TransportClock transportClock;
+
+	@Inject
+	private ClickTrackGenerator clickTrackGenerator;
+
+	private final Map<Long, Voice> idToVoiceMap = new ConcurrentHashMap<>();
+	private volatile Voice[] voices = new Voice[0];
+
+	private RenderThread renderThread;
+
+	private Voice getSampleVoice(Sample sample) {
+		Voice voice = this.idToVoiceMap.get(sample.getId());
+		if (voice != null && voice.getSample() != sample) {
+			voice.setSample(sample);
+		}
+		return voice;
+	}
+
+	private Voice getOrCreateSampleVoice(Sample sample) {
+		Voice voice = this.idToVoiceMap.get(sample.getId());
+		if (voice == null) {
+			synchronized (this) {
+				voice = this.idToVoiceMap.get(sample.getId());
+				if (voice == null) {
+					this.removeDoneVoices();
+					voice = new Voice(sample);
+					this.idToVoiceMap.put(sample.getId(), voice);
+					Voice[] newVoices = Arrays.copyOf(this.voices, this.voices.length + 1);
+					newVoices[newVoices.length - 1] = voice;
+					this.voices = newVoices;
+				}
+			}
+		} else if (voice.getSample() != sample) {
+			voice.setSample(sample);
+		}
+		return voice;
+	}
+
+	private synchronized void removeVoice(Voice voice) {
+		if (this.idToVoiceMap.remove(voice.getSample().getId(), voice)) {
+			Voice[] newVoices = new Voice[this.voices.length - 1];
+			int index = 0;
+			for (Voice other : this.voices) {
+				if (other != voice) {
+					newVoices[index++] = other;
+				}
+			}
+			this.voices = newVoices;
+		}
+	}
 
-	private Clip getSampleClip(Sample sample) {
-		Clip clip = this.idToClipMap.get(sample.getId());
-		try {
-			if (clip == null) {
-				clip = this.audioSystemProvider.getClip(null, sample.getData(), 0, sample.getData().length);
-				this.idToClipMap.put(sample.getId(), clip);
+	/**
+	 * Drops voices that were stopped at the end of their loop, the render
+	 * thread stops them on its own so they are swept up here.
+	 */
+	private synchronized void removeDoneVoices() {
+		for (Voice voice : this.voices) {
+			if (voice.isDone()) {
+				this.removeVoice(voice);
 			}
-		} catch (LineUnavailableException e) {
-			log.error("Unable to play sample", e);
-			throw new RuntimeException(e);
 		}
-		return clip;
+	}
+
+	private synchronized void startRendering() {
+		if (this.renderThread == null) {
+			this.renderThread = new RenderThread();
+			this.renderThread.start();
+		}
+	}
+
+	@Override
+	public void setOutputChannel(OutputChannel outputChannel) {
+		super.setOutputChannel(outputChannel);
+		this.startRendering();
 	}
 
 	@Override
 	protected void playSample(Sample sample, long position, int count) {
 		log.info("Play sample [id=" + sample.getId() + "][position=" + position + "][count=" + count + "]");
-		Clip clip = this.getSampleClip(sample);
-		clip.setMicrosecondPosition(position);
-		clip.loop(count);
+		synchronized (this) {
+			this.getOrCreateSampleVoice(sample).play(this.audioSystemProvider.getFrameLength(position), count);
+		}
+		this.startRendering();
 	}
 
 	@Override
 	protected long getSamplePosition(Sample sample) {
-		return this.getSampleClip(sample).getMicrosecondPosition();
+		Voice voice = this.getSampleVoice(sample);
+		return voice == null ? 0 : this.audioSystemProvider.getMicrosecondLength(voice.getFramePosition());
 	}
 
 	@Override
 	protected void resetSamplePosition(Sample sample) {
-		this.getSampleClip(sample).setFramePosition(0);
+		this.getOrCreateSampleVoice(sample).setFramePosition(0);
 	}
 
 	@Override
-	protected void endSample(Sample sample) {
-		Clip clip = this.getSampleClip(sample);
-		clip.stop();
-		clip.setFramePosition(0);
+	protected synchronized void endSample(Sample sample) {
+		Voice voice = this.getSampleVoice(sample);
+		if (voice != null) {
+			voice.stop();
+			this.removeVoice(voice);
+		}
 	}
 
 	@Override
-	protected void finishSample(Sample sample) {
-		this.getSampleClip(sample).loop(0);
+	protected synchronized void finishSample(Sample sample) {
+		Voice voice = this.getSampleVoice(sample);
+		if (voice != null) {
+			voice.finish();
+			voice.release();
+		}
+		this.removeDoneVoices();
 	}
 
 	@Override
 	public void muteSample(Sample sample, boolean mute) {
-		Clip clip = getSampleClip(sample);
-		((BooleanControl) clip.getControl(Type.MUTE)).setValue(mute);
+		this.getOrCreateSampleVoice(sample).setMute(mute);
+	}
+
+	private class RenderThread extends Thread {
+
+		RenderThread() {
+			super("Player-" + (Player.this.getOutputChannel() == null ? "default" : Player.this.getOutputChannel().getId()));
+			this.setDaemon(true);
+			this.setPriority(MAX_PRIORITY);
+		}
+
+		@Override
+		public void run() {
+			AudioFormat format = Player.this.appConfig.getAudioFormat();
+			int channels = format.getChannels();
+			int periodFrames = Player.this.appConfig.getPeriodFrames();
+			byte[] buffer = new byte[periodFrames * format.getFrameSize()];
+			float[] mix = new float[periodFrames * channels];
+			long periodNanos = (long) (periodFrames * 1000000000L / (double) format.getSampleRate());
+			SourceDataLine line = null;
+			try {
+				line = Player.this.audioSystemProvider.acquireSourceDataLine(
+						Player.this.getOutputChannel() == null ? null : Player.this.getOutputChannel().getLineInfo(), format,
+						buffer.length * LINE_PERIODS);
+				line.start();
+			} catch (LineUnavailableException e) {
+				log.error("Unable to open output line, rendering without device", e);
+				line = null;
+			}
+			boolean clockDriver = Player.this.transportClock.claim(Player.this);
+			log.info("Start rendering [clockDriver=" + clockDriver + "]...");
+			while (!this.isInterrupted()) {
+				Arrays.fill(mix, 0f);
+				for (Voice voice : Player.this.voices) {
+					voice.mix(mix, periodFrames, channels);
+				}
+				if (clockDriver) {
+					// the click is only heard on the output driving the transport
+					Player.this.clickTrackGenerator.mix(mix, periodFrames, channels);
+				}
+				for (int i = 0; i < mix.length; i++) {
+					int value = Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, Math.round(mix[i] * 32768f)));
+					buffer[2 * i] = (byte) value;
+					buffer[2 * i + 1] = (byte) (value >> 8);
+				}
+				LevelMeter levelMeter = Player.this.getLevelMeter();
+				if (levelMeter != null) {
+					levelMeter.process(buffer, 0, buffer.length);
+				}
+				if (line != null) {
+					line.write(buffer, 0, buffer.length);
+				} else {
+					LockSupport.parkNanos(periodNanos);
+				}
+				if (clockDriver) {
+					Player.this.transportClock.advance(Player.this, periodFrames);
+				}
+			}
+			Player.this.transportClock.release(Player.this);
+			if (line != null) {
+				Player.this.audioSystemProvider.release(line);
+			}
+			log.info("Stop rendering...");
+		}
 	}
 }
@@ -1,10 +1,6 @@
 package ch.sulco.yal.dsp.audio.onboard;
 
-import java.io.IOException;
-
 import javax.inject.Inject;
-import javax.sound.sampled.AudioInputStream;
-import javax.sound.sampled.Clip;
 import javax.sound.sampled.LineUnavailableException;
 import javax.sound.sampled.TargetDataLine;
 
@@ -12,7 +8,6 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import ch.sulco.yal.AppConfig;
-import ch.sulco.yal.dm.RecordingState;
 import ch.sulco.yal.dsp.audio.AudioSource;
 
 public class Recorder extends AudioSource {
@@ -33,20 +28,14 @@ public class Recorder extends AudioSource {
 
 	@Override
 	protected long getSampleLength() {
-		try {
-			Clip clip = this.audioSystemProvider.getClip(null, getRecordedSample(), 0, getRecordedSample().length);
-			return clip.getMicrosecondLength();
-		} catch (LineUnavailableException e) {
-			e.printStackTrace();
-		}
-		return 0;
+		return this.audioSystemProvider.getMicrosecondLength(getRecordedSample().getFrameCount());
 	}
 
 	@Override
 	protected Thread getRecordThread() {
 		try {
-			this.line = (TargetDataLine) this.audioSystemProvider.getLine(this.getInputChannel().getLineInfo());
-			this.line.open(this.appConfig.getAudioFormat());
+			this.line = this.audioSystemProvider.acquireTargetDataLine(this.getInputChannel().getLineInfo(),
+					this.appConfig.getAudioFormat());
 			this.line.start();
 			return new RecordThread(this.line);
 		} catch (LineUnavailableException e) {
@@ -60,25 +49,24 @@ public class Recorder extends AudioSource {
 		private final TargetDataLine line;
 
 		RecordThread(TargetDataLine line) {
+			super("Record-" + Recorder.this.getInputChannel().getId());
 			this.line = line;
+			this.setDaemon(true);
+			this.setPriority(MAX_PRIORITY);
 		}
 
 		@Override
 		public void run() {
-			try {
-				log.info("Start capturing...");
-				AudioInputStream ais = new AudioInputStream(this.line);
-				log.info("Start recording...");
-				while (Recorder.this.getInputChannel().getRecordingState() == RecordingState.RECORDING) {
-					byte[] buffer = new byte[4];
-					ais.read(buffer);
-					Recorder.this.newAudioData(buffer);
+			log.info("Start capturing...");
+			byte[] block = new byte[Recorder.this.getCaptureBlockSize()];
+			while (Recorder.this.isCapturing()) {
+				int bytesRead = this.line.read(block, 0, block.length);
+				if (bytesRead > 0) {
+					Recorder.this.capture(block, 0, bytesRead);
 				}
-				log.info("Stop recording...");
-
-			} catch (IOException ioe) {
-				ioe.printStackTrace();
 			}
+			Recorder.this.audioSystemProvider.release(this.line);
+			log.info("Stop capturing...");
 		}
 	}
 }
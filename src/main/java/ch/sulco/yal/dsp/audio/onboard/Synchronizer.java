@@ -1,111 +1,146 @@
 package ch.sulco.yal.dsp.audio.onboard;
 
-import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.ScheduledFuture;
-import java.util.concurrent.TimeUnit;
 
+import javax.annotation.PostConstruct;
 import javax.inject.Inject;
 import javax.inject.Singleton;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import com.google.common.base.Stopwatch;
-
+import ch.sulco.yal.AppConfig;
 import ch.sulco.yal.dsp.DataStore;
 import ch.sulco.yal.dsp.LoopActivator;
 
 @Singleton
-public class Synchronizer {
+public class Synchronizer implements TransportListener {
 	private final static Logger log = LoggerFactory.getLogger(Synchronizer.class);
 
+	private static final long NO_BOUNDARY = Long.MAX_VALUE;
+
+	@Inject
+	private AppConfig appConfig;
+
 	@Inject
 	private DataStore dataStore;
 
 	@Inject
 	private LoopActivator loopActivator;
 
-	private LinkedList<LoopListener> loopListeners = new LinkedList<>();
-	private LinkedList<SyncAdjuster> syncAdjusters = new LinkedList<>();
-
-	private long loopLength = 0;
+	@Inject
+	private TransportClock transportClock;
+
+	private final List<LoopListener> loopListeners = new CopyOnWriteArrayList<>();
+	private final List<SyncAdjuster> syncAdjusters = new CopyOnWriteArrayList<>();
+	// guards the loop boundary state, it is advanced from the render thread
+	private final Object boundaryLock = new Object();
+
+	private volatile long loopLength = 0;
+	private volatile long loopFrames = 0;
+	private volatile long loopStartFrame = 0;
+	private volatile long nextBoundaryFrame = NO_BOUNDARY;
+	private volatile boolean running;
+	// guarded by boundaryLock
 	private boolean firstLoop;
-	private ScheduledExecutorService synchronizeService = Executors.newSingleThreadScheduledExecutor();
-	private ScheduledFuture<?> synchronizeTimer;
+	private ExecutorService synchronizeService = Executors.newSingleThreadExecutor();
 
-	public void setLength(long length) {
-		loopLength = length;
-		synchronizeTimer = null;
-		firstLoop = true;
-		log.info("length set to " + loopLength);
+	@PostConstruct
+	public void setup() {
+		this.transportClock.addTransportListener(this);
 	}
 
-	private void checkLine() {
-		if (synchronizeTimer == null) {
-			synchronizeEvent();
-			log.info("Synchronization loop started");
+	public void setLength(long length) {
+		synchronized (boundaryLock) {
+			loopLength = length;
+			loopFrames = Math.round(length * (double) appConfig.getSampleRate() / 1000000);
+			nextBoundaryFrame = running && loopFrames > 0 ? loopStartFrame + loopFrames : NO_BOUNDARY;
+			firstLoop = true;
 		}
-		log.info("Synchronization loop event set up " + synchronizeTimer.getDelay(TimeUnit.MICROSECONDS));
+		log.info("length set to " + loopLength + " [frames=" + loopFrames + "]");
 	}
 
-	private void startTimer(long time) {
-		log.info("Start timer with " + time + "/" + loopLength);
-		synchronizeTimer = synchronizeService.schedule(new Runnable() {
-			public void run() {
-				synchronizeEvent();
+	@Override
+	public void framesAdvanced(long fromFrame, long toFrame) {
+		if (nextBoundaryFrame >= toFrame) {
+			return;
+		}
+		synchronized (boundaryLock) {
+			long boundaryFrame = nextBoundaryFrame;
+			if (running && boundaryFrame < toFrame) {
+				loopStartFrame = boundaryFrame;
+				nextBoundaryFrame = boundaryFrame + loopFrames;
+				scheduleSynchronizeEvent(boundaryFrame);
 			}
-		}, time, TimeUnit.MICROSECONDS);
-		triggerLoopStarted(firstLoop);
-		firstLoop = false;
+		}
 	}
 
 	public void stopLoop() {
 		log.info("stop loop");
-		if (synchronizeTimer != null) {
-			synchronizeTimer.cancel(false);
-			synchronizeTimer = null;
-			log.info("Synchronization loop ended");
+		synchronized (boundaryLock) {
+			if (running) {
+				running = false;
+				nextBoundaryFrame = NO_BOUNDARY;
+				log.info("Synchronization loop ended");
+			}
 		}
 		for (LoopListener loopListener : loopListeners) {
 			loopListener.loopStopped();
 		}
 	}
 
-	private void synchronizeEvent() {
-		log.info("Synchronization event");
+	// called with boundaryLock held, events run in the order they are scheduled
+	private void scheduleSynchronizeEvent(long frame) {
+		boolean first = firstLoop;
+		firstLoop = false;
+		synchronizeService.execute(new Runnable() {
+			public void run() {
+				synchronizeEvent(frame, first);
+			}
+		});
+	}
+
+	private void synchronizeEvent(long frame, boolean firstLoop) {
+		if (!running) {
+			return;
+		}
+		log.info("Synchronization event [frame=" + frame + "]");
 		if (dataStore.getNextLoopId() != null && dataStore.getNextLoopId() != dataStore.getCurrentLoop().getId()) {
 			loopActivator.setCurrentLoopId(dataStore.getNextLoopId());
-		} else {
-			Stopwatch stopwatch = Stopwatch.createStarted();
-			int count = 0;
-			long halfLoopLength = getLoopLength() / 2;
-			SyncAdjustment loopSyncAdjustment = new SyncAdjustment(halfLoopLength, -halfLoopLength, 0L);
-			for (SyncAdjuster syncAdjuster : syncAdjusters) {
-				SyncAdjustment syncAdjustment = syncAdjuster.getSyncAdjustment();
-				if (syncAdjustment != null) {
-					count++;
-					if (syncAdjustment.getLowestSamplePosition() < loopSyncAdjustment.getLowestSamplePosition()) {
-						loopSyncAdjustment.setLowestSamplePosition(syncAdjustment.getLowestSamplePosition());
-					}
-					loopSyncAdjustment.setAverageSamplePosition(
-							loopSyncAdjustment.getAverageSamplePosition() + syncAdjustment.getAverageSamplePosition());
-					if (syncAdjustment.getHighestSamplePosition() > loopSyncAdjustment.getHighestSamplePosition()) {
-						loopSyncAdjustment.setHighestSamplePosition(syncAdjustment.getHighestSamplePosition());
-					}
+		}
+		if (log.isDebugEnabled()) {
+			logSyncAdjustment();
+		}
+		triggerLoopStarted(firstLoop, frame);
+	}
+
+	private void logSyncAdjustment() {
+		int count = 0;
+		long halfLoopLength = getLoopLength() / 2;
+		SyncAdjustment loopSyncAdjustment = new SyncAdjustment(halfLoopLength, -halfLoopLength, 0L);
+		for (SyncAdjuster syncAdjuster : syncAdjusters) {
+			SyncAdjustment syncAdjustment = syncAdjuster.getSyncAdjustment();
+			if (syncAdjustment != null) {
+				count++;
+				if (syncAdjustment.getLowestSamplePosition() < loopSyncAdjustment.getLowestSamplePosition()) {
+					loopSyncAdjustment.setLowestSamplePosition(syncAdjustment.getLowestSamplePosition());
+				}
+				loopSyncAdjustment.setAverageSamplePosition(
+						loopSyncAdjustment.getAverageSamplePosition() + syncAdjustment.getAverageSamplePosition());
+				if (syncAdjustment.getHighestSamplePosition() > loopSyncAdjustment.getHighestSamplePosition()) {
+					loopSyncAdjustment.setHighestSamplePosition(syncAdjustment.getHighestSamplePosition());
 				}
 			}
-			if (count > 0) {
-				loopSyncAdjustment.setAverageSamplePosition(loopSyncAdjustment.getAverageSamplePosition() / count);
-			}
-			long calculateTime = stopwatch.elapsed(TimeUnit.MICROSECONDS);
-			long newLenght = loopLength - loopSyncAdjustment.getAverageSamplePosition() / 2 - calculateTime - 1500;
-			log.info("Synchronization position calculated in " + calculateTime + " [min=" + loopSyncAdjustment.getLowestSamplePosition()
-					+ ", avg=" + loopSyncAdjustment.getAverageSamplePosition() + ", max="
-					+ loopSyncAdjustment.getHighestSamplePosition() + "]");
-			startTimer(newLenght);
 		}
+		if (count > 0) {
+			loopSyncAdjustment.setAverageSamplePosition(loopSyncAdjustment.getAverageSamplePosition() / count);
+		}
+		log.debug("Synchronization drift [min=" + loopSyncAdjustment.getLowestSamplePosition()
+				+ ", avg=" + loopSyncAdjustment.getAverageSamplePosition() + ", max="
+				+ loopSyncAdjustment.getHighestSamplePosition() + "]");
 	}
 
 	public void addLoopListerner(LoopListener loopListerer) {
@@ -124,12 +159,21 @@ public class Synchronizer {
 
 	public void startLoop() {
 		log.info("start loop [length=" + loopLength + "]");
-		this.checkLine();
+		synchronized (boundaryLock) {
+			if (!running) {
+				long frame = transportClock.getFramePosition();
+				loopStartFrame = frame;
+				nextBoundaryFrame = loopFrames > 0 ? frame + loopFrames : NO_BOUNDARY;
+				running = true;
+				scheduleSynchronizeEvent(frame);
+				log.info("Synchronization loop started [frame=" + frame + "]");
+			}
+		}
 	}
 
-	private void triggerLoopStarted(boolean firstLoop) {
+	private void triggerLoopStarted(boolean firstLoop, long frame) {
 		for (LoopListener loopListener : loopListeners) {
-			loopListener.loopStarted(firstLoop);
+			loopListener.loopStarted(firstLoop, frame);
 		}
 	}
 
@@ -143,14 +187,45 @@ public class Synchronizer {
 		log.info("Synchronization adjuster removed, now has " + syncAdjusters.size());
 	}
 
-	public long getCurrentPosition() {
-		if (synchronizeTimer != null) {
-			return loopLength - synchronizeTimer.getDelay(TimeUnit.MICROSECONDS);
+	public long getCurrentFramePosition() {
+		if (!running) {
+			return 0;
 		}
-		return 0;
+		long frames = transportClock.getFramePosition() - loopStartFrame;
+		if (frames < 0) {
+			return 0;
+		}
+		return loopFrames > 0 ? frames % loopFrames : frames;
+	}
+
+	/**
+	 * @return the transport frames played since {@code frame}
+	 */
+	public long getFramesSince(long frame) {
+		return Math.max(0, transportClock.getFramePosition() - frame);
+	}
+
+	/**
+	 * @return the time in microseconds played since transport frame
+	 *         {@code frame}
+	 */
+	public long getPositionSince(long frame) {
+		return (long) (getFramesSince(frame) * 1000000 / (double) appConfig.getSampleRate());
+	}
+
+	public long getCurrentPosition() {
+		return (long) (getCurrentFramePosition() * 1000000 / (double) appConfig.getSampleRate());
 	}
 
 	public long getLoopLength() {
 		return loopLength;
 	}
+
+	public long getLoopFrames() {
+		return loopFrames;
+	}
+
+	public boolean isRunning() {
+		return running;
+	}
 }
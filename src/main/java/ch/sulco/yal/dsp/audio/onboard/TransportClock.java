@@ -0,0 +1,60 @@
+package ch.sulco.yal.dsp.audio.onboard;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.inject.Singleton;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Frame counter advanced by the audio device driver. Only one driver (the
+ * first sink to claim it) moves the clock, readers never block.
+ */
+@Singleton
+public class TransportClock {
+	private final static Logger log = LoggerFactory.getLogger(TransportClock.class);
+
+	private final AtomicLong framePosition = new AtomicLong();
+	private final AtomicReference<Object> driver = new AtomicReference<>();
+	private final List<TransportListener> transportListeners = new CopyOnWriteArrayList<>();
+
+	public long getFramePosition() {
+		return this.framePosition.get();
+	}
+
+	public boolean claim(Object driver) {
+		if (this.driver.compareAndSet(null, driver)) {
+			log.info("Transport driven by " + driver);
+			return true;
+		}
+		return this.driver.get() == driver;
+	}
+
+	public void release(Object driver) {
+		this.driver.compareAndSet(driver, null);
+	}
+
+	public void advance(Object driver, int frames) {
+		if (this.driver.get() != driver) {
+			return;
+		}
+		long fromFrame = this.framePosition.get();
+		long toFrame = fromFrame + frames;
+		this.framePosition.set(toFrame);
+		for (TransportListener transportListener : this.transportListeners) {
+			transportListener.framesAdvanced(fromFrame, toFrame);
+		}
+	}
+
+	public void addTransportListener(TransportListener transportListener) {
+		this.transportListeners.add(transportListener);
+	}
+
+	public void removeTransportListener(TransportListener transportListener) {
+		this.transportListeners.remove(transportListener);
+	}
+}
@@ -0,0 +1,5 @@
+package ch.sulco.yal.dsp.audio.onboard;
+
+public interface TransportListener {
+	void framesAdvanced(long fromFrame, long toFrame);
+}
@@ -0,0 +1,132 @@
+package ch.sulco.yal.dsp.audio.onboard;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import ch.sulco.yal.dm.PcmBuffer;
+import ch.sulco.yal.dm.Sample;
+
+/**
+ * Playback state of one sample. Position, loop count and playing flag are only
+ * written by the render thread, other threads queue commands that are applied
+ * before the next period is mixed, so they are never overwritten by a period
+ * that was already in progress.
+ */
+final class Voice {
+
+	private final Queue<Runnable> commands = new ConcurrentLinkedQueue<>();
+	private volatile Sample sample;
+	private volatile long framePosition;
+	private volatile int remainingLoops;
+	private volatile boolean playing;
+	private volatile boolean mute;
+	private volatile boolean released = true;
+
+	Voice(Sample sample) {
+		this.sample = sample;
+	}
+
+	Sample getSample() {
+		return this.sample;
+	}
+
+	void setSample(Sample sample) {
+		this.sample = sample;
+	}
+
+	long getFramePosition() {
+		return this.framePosition;
+	}
+
+	void setFramePosition(long framePosition) {
+		this.commands.offer(() -> this.framePosition = framePosition);
+	}
+
+	boolean isPlaying() {
+		return this.playing;
+	}
+
+	void play(long framePosition, int count) {
+		this.released = false;
+		this.commands.offer(() -> {
+			this.framePosition = framePosition;
+			this.remainingLoops = count;
+			this.playing = true;
+		});
+	}
+
+	void stop() {
+		this.commands.offer(this::halt);
+	}
+
+	void finish() {
+		this.commands.offer(() -> this.remainingLoops = 0);
+	}
+
+	/**
+	 * Marks this voice to be dropped once it has played out. Voices start
+	 * released until they are played.
+	 */
+	void release() {
+		this.released = true;
+	}
+
+	/**
+	 * @return true if this voice was released and has stopped playing
+	 */
+	boolean isDone() {
+		return this.released && !this.playing && this.commands.isEmpty();
+	}
+
+	private void halt() {
+		this.playing = false;
+		this.framePosition = 0;
+	}
+
+	void setMute(boolean mute) {
+		this.mute = mute;
+	}
+
+	/**
+	 * Adds the next {@code frames} frames of this voice to the interleaved
+	 * {@code mix}. Muted voices keep advancing so they stay in sync.
+	 */
+	void mix(float[] mix, int frames, int channels) {
+		Runnable command;
+		while ((command = this.commands.poll()) != null) {
+			command.run();
+		}
+		if (!this.playing) {
+			return;
+		}
+		Sample sample = this.sample;
+		PcmBuffer data = sample.getData();
+		if (data == null || data.getFrameCount() == 0) {
+			return;
+		}
+		int totalFrames = data.getFrameCount();
+		int sampleChannels = Math.min(channels, data.getChannels());
+		float gain = this.mute ? 0f : (sample.getGain() == null ? 1f : sample.getGain());
+		long position = this.framePosition;
+		for (int frame = 0; frame < frames; frame++) {
+			if (position >= totalFrames) {
+				if (this.remainingLoops == 0) {
+					this.halt();
+					return;
+				}
+				if (this.remainingLoops > 0) {
+					this.remainingLoops--;
+				}
+				position = 0;
+			}
+			if (gain != 0f) {
+				int mixOffset = frame * channels;
+				for (int channel = 0; channel < sampleChannels; channel++) {
+					mix[mixOffset + channel] += gain * data.getFloat((int) position, channel);
+				}
+			}
+			position++;
+		}
+		this.framePosition = position;
+	}
+}
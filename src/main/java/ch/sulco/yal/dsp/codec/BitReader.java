@@ -0,0 +1,47 @@
+package ch.sulco.yal.dsp.codec;
+
+/**
+ * Reads the bit stream produced by {@link BitWriter}.
+ */
+final class BitReader {
+
+	private final byte[] bytes;
+	private int position;
+	private long buffer;
+	private int bits;
+
+	BitReader(byte[] bytes) {
+		this.bytes = bytes;
+	}
+
+	int read(int count) {
+		while (this.bits < count) {
+			this.buffer = (this.buffer << 8) | (this.bytes[this.position++] & 0xFF);
+			this.bits += 8;
+		}
+		this.bits -= count;
+		return (int) ((this.buffer >>> this.bits) & ((1L << count) - 1));
+	}
+
+	int readRice(int parameter) {
+		int quotient = 0;
+		while (true) {
+			if (this.bits == 0) {
+				this.buffer = this.bytes[this.position++] & 0xFF;
+				this.bits = 8;
+			}
+			long pending = this.buffer & ((1L << this.bits) - 1);
+			if (pending != 0) {
+				// skip the zeros and the terminating one of the unary quotient at once
+				int zeros = this.bits - (64 - Long.numberOfLeadingZeros(pending));
+				quotient += zeros;
+				this.bits -= zeros + 1;
+				break;
+			}
+			quotient += this.bits;
+			this.bits = 0;
+		}
+		int zigZag = parameter > 0 ? (quotient << parameter) | this.read(parameter) : quotient;
+		return (zigZag >>> 1) ^ -(zigZag & 1);
+	}
+}
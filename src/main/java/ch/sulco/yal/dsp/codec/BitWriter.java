@@ -0,0 +1,55 @@
+package ch.sulco.yal.dsp.codec;
+
+import java.util.Arrays;
+
+/**
+ * Writes a big-endian bit stream into a growing byte array.
+ */
+final class BitWriter {
+
+	private byte[] bytes;
+	private int length;
+	private long buffer;
+	private int bits;
+
+	BitWriter(int initialCapacity) {
+		this.bytes = new byte[Math.max(16, initialCapacity)];
+	}
+
+	void write(int value, int count) {
+		this.buffer = (this.buffer << count) | (value & ((1L << count) - 1));
+		this.bits += count;
+		while (this.bits >= 8) {
+			this.bits -= 8;
+			this.put((byte) (this.buffer >>> this.bits));
+		}
+	}
+
+	void writeRice(int value, int parameter) {
+		int zigZag = (value << 1) ^ (value >> 31);
+		int quotient = zigZag >>> parameter;
+		while (quotient >= 32) {
+			this.write(0, 32);
+			quotient -= 32;
+		}
+		this.write(1, quotient + 1);
+		if (parameter > 0) {
+			this.write(zigZag, parameter);
+		}
+	}
+
+	byte[] toByteArray() {
+		if (this.bits > 0) {
+			this.put((byte) (this.buffer << (8 - this.bits)));
+			this.bits = 0;
+		}
+		return Arrays.copyOf(this.bytes, this.length);
+	}
+
+	private void put(byte value) {
+		if (this.length == this.bytes.length) {
+			this.bytes = Arrays.copyOf(this.bytes, this.bytes.length * 2);
+		}
+		this.bytes[this.length++] = value;
+	}
+}
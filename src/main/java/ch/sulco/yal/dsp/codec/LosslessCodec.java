@@ -0,0 +1,188 @@
+package ch.sulco.yal.dsp.codec;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.ShortBuffer;
+import java.util.stream.IntStream;
+
+import ch.sulco.yal.dm.PcmBuffer;
+import ch.sulco.yal.dm.SampleFormat;
+
+/**
+ * Lossless compression for 16 bit samples in the style of FLAC. The audio is
+ * cut into fixed size blocks; every channel of a block is coded with the best
+ * of the fixed polynomial predictors of order 0 to 4 and a Rice coded
+ * residual, or stored verbatim if that is smaller. A seek table in the header
+ * gives the position of each block, so blocks can be coded in parallel and
+ * decoded independently.
+ *
+ * <pre>
+ * header     magic "YALC", version, channels, bits per sample, reserved,
+ *            frame count, block frames, block count (little endian)
+ * seek table offset and length of every block, relative to the first block
+ * blocks     one subframe per channel, padded to a whole byte
+ * </pre>
+ */
+public final class LosslessCodec {
+
+	public static final String EXTENSION = ".yalc";
+	public static final int DEFAULT_BLOCK_FRAMES = 4096;
+
+	static final int MAGIC = 0x434C4159; // "YALC" read little endian
+	static final int VERSION = 1;
+	static final int HEADER_BYTES = 20;
+	static final int SEEK_ENTRY_BYTES = 8;
+
+	private static final int MAX_ORDER = 4;
+	private static final int VERBATIM = 7;
+
+	private LosslessCodec() {
+	}
+
+	public static ByteBuffer encode(PcmBuffer pcm) {
+		return encode(pcm, DEFAULT_BLOCK_FRAMES);
+	}
+
+	public static ByteBuffer encode(PcmBuffer pcm, int blockFrames) {
+		if (pcm.getFormat() != SampleFormat.PCM_SIGNED_16) {
+			throw new IllegalArgumentException("Only 16 bit samples can be compressed [" + pcm.getFormat() + "]");
+		}
+		ShortBuffer samples = pcm.asShortBuffer();
+		int channels = pcm.getChannels();
+		int frameCount = pcm.getFrameCount();
+		int blockCount = (frameCount + blockFrames - 1) / blockFrames;
+
+		byte[][] blocks = IntStream.range(0, blockCount).parallel()
+				.mapToObj(block -> encodeBlock(samples, channels, block * blockFrames,
+						Math.min(blockFrames, frameCount - block * blockFrames)))
+				.toArray(byte[][]::new);
+
+		int dataLength = 0;
+		for (byte[] block : blocks) {
+			dataLength += block.length;
+		}
+		ByteBuffer file = ByteBuffer.allocate(HEADER_BYTES + blockCount * SEEK_ENTRY_BYTES + dataLength)
+				.order(ByteOrder.LITTLE_ENDIAN);
+		file.putInt(MAGIC);
+		file.put((byte) VERSION);
+		file.put((byte) channels);
+		file.put((byte) 16);
+		file.put((byte) 0);
+		file.putInt(frameCount);
+		file.putInt(blockFrames);
+		file.putInt(blockCount);
+		int offset = 0;
+		for (byte[] block : blocks) {
+			file.putInt(offset);
+			file.putInt(block.length);
+			offset += block.length;
+		}
+		for (byte[] block : blocks) {
+			file.put(block);
+		}
+		file.flip();
+		return file;
+	}
+
+	static byte[] encodeBlock(ShortBuffer samples, int channels, int fromFrame, int frames) {
+		BitWriter writer = new BitWriter(frames * channels);
+		int[] signal = new int[frames];
+		int[] residual = new int[frames];
+		for (int channel = 0; channel < channels; channel++) {
+			for (int i = 0; i < frames; i++) {
+				signal[i] = samples.get((fromFrame + i) * channels + channel);
+			}
+			encodeSubframe(writer, signal, residual, frames);
+		}
+		return writer.toByteArray();
+	}
+
+	private static void encodeSubframe(BitWriter writer, int[] signal, int[] residual, int frames) {
+		int bestOrder = 0;
+		long bestSum = Long.MAX_VALUE;
+		for (int order = 0; order <= Math.min(MAX_ORDER, frames); order++) {
+			long sum = 0;
+			for (int i = order; i < frames; i++) {
+				sum += Math.abs(signal[i] - predict(signal, i, order));
+			}
+			if (sum < bestSum) {
+				bestSum = sum;
+				bestOrder = order;
+			}
+		}
+		long zigZagSum = 0;
+		for (int i = bestOrder; i < frames; i++) {
+			residual[i] = signal[i] - predict(signal, i, bestOrder);
+			zigZagSum += (residual[i] << 1) ^ (residual[i] >> 31);
+		}
+		int count = frames - bestOrder;
+		int parameter = count == 0 ? 0 : riceParameter(zigZagSum / count);
+		long bits = 3 + bestOrder * 16 + 5 + (long) count * (parameter + 1);
+		for (int i = bestOrder; i < frames; i++) {
+			bits += (((residual[i] << 1) ^ (residual[i] >> 31)) >>> parameter);
+		}
+
+		if (bits >= 3 + (long) frames * 16) {
+			writer.write(VERBATIM, 3);
+			for (int i = 0; i < frames; i++) {
+				writer.write(signal[i], 16);
+			}
+			return;
+		}
+		writer.write(bestOrder, 3);
+		for (int i = 0; i < bestOrder; i++) {
+			writer.write(signal[i], 16);
+		}
+		writer.write(parameter, 5);
+		for (int i = bestOrder; i < frames; i++) {
+			writer.writeRice(residual[i], parameter);
+		}
+	}
+
+	static void decodeBlock(byte[] block, ShortBuffer target, int channels, int targetFrame, int frames) {
+		BitReader reader = new BitReader(block);
+		int[] signal = new int[frames];
+		for (int channel = 0; channel < channels; channel++) {
+			int order = reader.read(3);
+			if (order == VERBATIM) {
+				for (int i = 0; i < frames; i++) {
+					signal[i] = (short) reader.read(16);
+				}
+			} else {
+				for (int i = 0; i < order; i++) {
+					signal[i] = (short) reader.read(16);
+				}
+				int parameter = reader.read(5);
+				for (int i = order; i < frames; i++) {
+					signal[i] = reader.readRice(parameter) + predict(signal, i, order);
+				}
+			}
+			for (int i = 0; i < frames; i++) {
+				target.put((targetFrame + i) * channels + channel, (short) signal[i]);
+			}
+		}
+	}
+
+	private static int predict(int[] signal, int i, int order) {
+		switch (order) {
+		case 0:
+			return 0;
+		case 1:
+			return signal[i - 1];
+		case 2:
+			return 2 * signal[i - 1] - signal[i - 2];
+		case 3:
+			return 3 * signal[i - 1] - 3 * signal[i - 2] + signal[i - 3];
+		default:
+			return 4 * signal[i - 1] - 6 * signal[i - 2] + 4 * signal[i - 3] - signal[i - 4];
+		}
+	}
+
+	private static int riceParameter(long meanZigZag) {
+		int parameter = 0;
+		while (parameter < 30 && (1L << (parameter + 1)) <= meanZigZag) {
+			parameter++;
+		}
+		return parameter;
+	}
+}
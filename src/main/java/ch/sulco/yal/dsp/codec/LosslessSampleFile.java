@@ -0,0 +1,130 @@
+package ch.sulco.yal.dsp.codec;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.stream.IntStream;
+
+import ch.sulco.yal.dm.PcmBuffer;
+import ch.sulco.yal.dm.SampleFormat;
+
+/**
+ * Random access to a sample written by {@link LosslessCodec}. Only the
+ * header and seek table are read on open; blocks are read and decoded on
+ * demand, so a player can stream from the file block by block. Blocks may be
+ * decoded from several threads at once.
+ */
+public class LosslessSampleFile implements Closeable {
+
+	private final FileChannel channel;
+	private final int channels;
+	private final int frameCount;
+	private final int blockFrames;
+	private final int[] blockOffsets;
+	private final int[] blockLengths;
+	private final long dataStart;
+
+	private LosslessSampleFile(FileChannel channel) throws IOException {
+		this.channel = channel;
+		ByteBuffer header = this.readFully(0, LosslessCodec.HEADER_BYTES);
+		if (header.getInt() != LosslessCodec.MAGIC) {
+			throw new IOException("Not a compressed sample");
+		}
+		int version = header.get();
+		if (version != LosslessCodec.VERSION) {
+			throw new IOException("Unsupported compressed sample version [" + version + "]");
+		}
+		this.channels = header.get();
+		header.get();
+		header.get();
+		this.frameCount = header.getInt();
+		this.blockFrames = header.getInt();
+		int blockCount = header.getInt();
+		ByteBuffer seekTable = this.readFully(LosslessCodec.HEADER_BYTES, blockCount * LosslessCodec.SEEK_ENTRY_BYTES);
+		this.blockOffsets = new int[blockCount];
+		this.blockLengths = new int[blockCount];
+		for (int block = 0; block < blockCount; block++) {
+			this.blockOffsets[block] = seekTable.getInt();
+			this.blockLengths[block] = seekTable.getInt();
+		}
+		this.dataStart = LosslessCodec.HEADER_BYTES + (long) blockCount * LosslessCodec.SEEK_ENTRY_BYTES;
+	}
+
+	public static LosslessSampleFile open(Path file) throws IOException {
+		return new LosslessSampleFile(FileChannel.open(file, StandardOpenOption.READ));
+	}
+
+	/**
+	 * Decodes the whole file, all blocks in parallel.
+	 */
+	public static PcmBuffer decode(Path file) throws IOException {
+		try (LosslessSampleFile sampleFile = open(file)) {
+			PcmBuffer pcm = PcmBuffer.allocate(sampleFile.getFrameCount(), sampleFile.getChannels(), SampleFormat.PCM_SIGNED_16);
+			try {
+				IntStream.range(0, sampleFile.getBlockCount()).parallel().forEach(block -> {
+					try {
+						sampleFile.decodeBlock(block, pcm, block * sampleFile.getBlockFrames());
+					} catch (IOException e) {
+						throw new UncheckedIOException(e);
+					}
+				});
+			} catch (UncheckedIOException e) {
+				throw e.getCause();
+			}
+			return pcm;
+		}
+	}
+
+	public int getChannels() {
+		return this.channels;
+	}
+
+	public int getFrameCount() {
+		return this.frameCount;
+	}
+
+	public int getBlockFrames() {
+		return this.blockFrames;
+	}
+
+	public int getBlockCount() {
+		return this.blockOffsets.length;
+	}
+
+	public int getBlockOf(int frame) {
+		return frame / this.blockFrames;
+	}
+
+	public int getBlockFrameCount(int block) {
+		return Math.min(this.blockFrames, this.frameCount - block * this.blockFrames);
+	}
+
+	/**
+	 * Decodes one block into {@code target}, starting at {@code targetFrame}.
+	 */
+	public void decodeBlock(int block, PcmBuffer target, int targetFrame) throws IOException {
+		ByteBuffer data = this.readFully(this.dataStart + this.blockOffsets[block], this.blockLengths[block]);
+		LosslessCodec.decodeBlock(data.array(), target.asShortBuffer(), this.channels, targetFrame, this.getBlockFrameCount(block));
+	}
+
+	private ByteBuffer readFully(long position, int length) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+		while (buffer.hasRemaining()) {
+			if (this.channel.read(buffer, position + buffer.position()) < 0) {
+				throw new IOException("Unexpected end of compressed sample");
+			}
+		}
+		buffer.flip();
+		return buffer;
+	}
+
+	@Override
+	public void close() throws IOException {
+		this.channel.close();
+	}
+}
@@ -31,7 +31,7 @@ public class LoopBuilder {
 	}
 
 	public LoopBuilder sample(Sample sample) {
-		this.instance.getSamples().add(sample);
+		this.instance.addSample(sample);
 		return this;
 	}
 
@@ -1,20 +1,56 @@
 package ch.sulco.yal.simulator;
 
+import java.util.concurrent.TimeUnit;
+
 import javax.inject.Inject;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import ch.sulco.yal.AppConfig;
+import ch.sulco.yal.dm.OutputChannel;
 import ch.sulco.yal.dm.Sample;
 import ch.sulco.yal.dsp.audio.AudioSink;
 import ch.sulco.yal.dsp.audio.onboard.Synchronizer;
+import ch.sulco.yal.dsp.audio.onboard.TransportClock;
 
 public class SimulatedAudioSink extends AudioSink {
 	private final static Logger log = LoggerFactory.getLogger(SimulatedAudioSink.class);
 
+	@Inject
+	private AppConfig appConfig;
+
 	@Inject
 	private Synchronizer synchronizer;
 
+	@Inject
+	private TransportClock transportClock;
+
+	@Override
+	public void setOutputChannel(OutputChannel outputChannel) {
+		super.setOutputChannel(outputChannel);
+		if (this.transportClock.claim(this)) {
+			Thread deviceThread = new Thread(new Runnable() {
+				@Override
+				public void run() {
+					int periodFrames = SimulatedAudioSink.this.appConfig.getPeriodFrames();
+					long periodMicros = (long) (periodFrames * 1000000L / (double) SimulatedAudioSink.this.appConfig.getSampleRate());
+					while (true) {
+						try {
+							TimeUnit.MICROSECONDS.sleep(periodMicros);
+						} catch (InterruptedException e) {
+							return;
+						}
+						SimulatedAudioSink.this.transportClock.advance(SimulatedAudioSink.this, periodFrames);
+					}
+				}
+			}, "SimulatedDevice");
+			deviceThread.setDaemon(true);
+			deviceThread.start();
+			log.info("Simulated device started");
+		}
+	}
+
 	@Override
 	protected void playSample(Sample sample, long position, int count) {
 
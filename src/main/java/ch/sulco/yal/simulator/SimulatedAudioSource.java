@@ -1,14 +1,11 @@
 package ch.sulco.yal.simulator;
 
-import java.util.Arrays;
-
 import javax.inject.Inject;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import ch.sulco.yal.AppConfig;
-import ch.sulco.yal.dm.RecordingState;
 import ch.sulco.yal.dsp.audio.AudioSource;
 
 public class SimulatedAudioSource extends AudioSource {
@@ -35,13 +32,16 @@ public class SimulatedAudioSource extends AudioSource {
 
 	private class RecordThread extends Thread {
 
+		RecordThread() {
+			this.setDaemon(true);
+		}
+
 		@Override
 		public void run() {
-			while (SimulatedAudioSource.this.getInputChannel().getRecordingState() == RecordingState.RECORDING) {
+			byte[] buffer = new byte[SimulatedAudioSource.this.dataSize];
+			while (SimulatedAudioSource.this.isCapturing()) {
 				try {
-					byte[] buffer = new byte[SimulatedAudioSource.this.dataSize];
-					Arrays.fill(buffer, (byte) 0x00);
-					SimulatedAudioSource.this.newAudioData(buffer);
+					SimulatedAudioSource.this.capture(buffer, 0, buffer.length);
 					Thread.sleep(1);
 				} catch (InterruptedException e) {
 					e.printStackTrace();
@@ -0,0 +1,163 @@
+package ch.sulco.yal.web;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Objects;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonNull;
+import com.google.gson.JsonObject;
+
+import ch.sulco.yal.dm.Loop;
+
+/**
+ * Turns loop changes into revisioned deltas for the UI. The last state sent
+ * for every loop is kept as a shadow copy. An update only carries the loop
+ * fields and samples that differ from it, together with the revision the
+ * delta applies to. Clients that miss a revision fetch a snapshot, which is
+ * always taken from the shadow so it matches the deltas that follow.
+ */
+public class LoopDeltaEncoder {
+
+	private static final String SAMPLES = "samples";
+	private static final String ID = "id";
+
+	private final Gson gson = new GsonBuilder().serializeNulls().create();
+
+	private final Map<Long, Shadow> shadows = new HashMap<>();
+
+	public synchronized String created(Loop loop) {
+		Shadow shadow = this.shadows.get(loop.getId());
+		long revision = shadow == null ? 1 : shadow.revision + 1;
+		shadow = new Shadow(revision, this.gson.toJsonTree(loop).getAsJsonObject());
+		this.shadows.put(loop.getId(), shadow);
+
+		JsonObject message = new JsonObject();
+		message.addProperty("eventType", "LoopCreated");
+		message.add("loop", shadow.snapshot());
+		return this.gson.toJson(message);
+	}
+
+	/**
+	 * @return the delta against the last sent state, or null if nothing the
+	 *         UI sees has changed
+	 */
+	public synchronized String updated(Loop loop) {
+		Shadow shadow = this.shadows.get(loop.getId());
+		if (shadow == null) {
+			return this.created(loop);
+		}
+		JsonObject current = this.gson.toJsonTree(loop).getAsJsonObject();
+
+		JsonObject changes = new JsonObject();
+		for (Entry<String, JsonElement> field : current.entrySet()) {
+			if (!SAMPLES.equals(field.getKey()) && !Objects.equals(field.getValue(), shadow.loop.get(field.getKey()))) {
+				changes.add(field.getKey(), field.getValue());
+			}
+		}
+		for (Entry<String, JsonElement> field : shadow.loop.entrySet()) {
+			if (!current.has(field.getKey())) {
+				changes.add(field.getKey(), JsonNull.INSTANCE);
+			}
+		}
+
+		Map<JsonElement, JsonObject> previousSamples = indexSamples(shadow.loop);
+		Map<JsonElement, JsonObject> currentSamples = indexSamples(current);
+		JsonArray samples = new JsonArray();
+		for (JsonObject sample : currentSamples.values()) {
+			JsonObject sampleChanges = diffSample(previousSamples.remove(sample.get(ID)), sample);
+			if (sampleChanges != null) {
+				samples.add(sampleChanges);
+			}
+		}
+		JsonArray removedSamples = new JsonArray();
+		for (JsonElement removedId : previousSamples.keySet()) {
+			removedSamples.add(removedId);
+		}
+
+		if (changes.entrySet().isEmpty() && samples.size() == 0 && removedSamples.size() == 0) {
+			return null;
+		}
+		long baseRevision = shadow.revision;
+		this.shadows.put(loop.getId(), new Shadow(baseRevision + 1, current));
+
+		JsonObject message = new JsonObject();
+		message.addProperty("eventType", "LoopDelta");
+		message.addProperty("loopId", loop.getId());
+		message.addProperty("baseRevision", baseRevision);
+		message.addProperty("revision", baseRevision + 1);
+		message.add("changes", changes);
+		message.add(SAMPLES, samples);
+		message.add("removedSamples", removedSamples);
+		return this.gson.toJson(message);
+	}
+
+	/**
+	 * @return the last sent state of the loop including its revision
+	 */
+	public synchronized JsonObject snapshot(Loop loop) {
+		Shadow shadow = this.shadows.get(loop.getId());
+		if (shadow == null) {
+			shadow = new Shadow(0, this.gson.toJsonTree(loop).getAsJsonObject());
+			this.shadows.put(loop.getId(), shadow);
+		}
+		return shadow.snapshot();
+	}
+
+	private static Map<JsonElement, JsonObject> indexSamples(JsonObject loop) {
+		Map<JsonElement, JsonObject> samples = new LinkedHashMap<>();
+		JsonElement array = loop.get(SAMPLES);
+		if (array != null && array.isJsonArray()) {
+			for (JsonElement sample : array.getAsJsonArray()) {
+				samples.put(sample.getAsJsonObject().get(ID), sample.getAsJsonObject());
+			}
+		}
+		return samples;
+	}
+
+	private static JsonObject diffSample(JsonObject previous, JsonObject current) {
+		if (previous == null) {
+			return current;
+		}
+		JsonObject changes = new JsonObject();
+		for (Entry<String, JsonElement> field : current.entrySet()) {
+			if (!Objects.equals(field.getValue(), previous.get(field.getKey()))) {
+				changes.add(field.getKey(), field.getValue());
+			}
+		}
+		for (Entry<String, JsonElement> field : previous.entrySet()) {
+			if (!current.has(field.getKey())) {
+				changes.add(field.getKey(), JsonNull.INSTANCE);
+			}
+		}
+		if (changes.entrySet().isEmpty()) {
+			return null;
+		}
+		changes.add(ID, current.get(ID));
+		return changes;
+	}
+
+	private static class Shadow {
+		private final long revision;
+		private final JsonObject loop;
+
+		Shadow(long revision, JsonObject loop) {
+			this.revision = revision;
+			this.loop = loop;
+		}
+
+		JsonObject snapshot() {
+			JsonObject snapshot = new JsonObject();
+			for (Entry<String, JsonElement> field : this.loop.entrySet()) {
+				snapshot.add(field.getKey(), field.getValue());
+			}
+			snapshot.addProperty("revision", this.revision);
+			return snapshot;
+		}
+	}
+}
@@ -3,6 +3,10 @@ package ch.sulco.yal.web;
 import static spark.Spark.get;
 import static spark.Spark.put;
 
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
 import javax.annotation.PostConstruct;
 import javax.inject.Inject;
 import javax.inject.Singleton;
@@ -11,20 +15,37 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.google.gson.Gson;
-
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonPrimitive;
+
+import ch.sulco.yal.AppConfig;
+import ch.sulco.yal.controller.MidiDispatcher;
+import ch.sulco.yal.dm.Loop;
+import ch.sulco.yal.dm.Sample;
 import ch.sulco.yal.dsp.DataStore;
 import ch.sulco.yal.dsp.DataStore.DataEvent;
 import ch.sulco.yal.dsp.DataStore.DataEventListener;
 import ch.sulco.yal.dsp.LoopActivator;
+import ch.sulco.yal.dsp.WaveformCache;
+import ch.sulco.yal.dsp.audio.MeterFeed;
 import ch.sulco.yal.dsp.audio.Processor;
+import ch.sulco.yal.dsp.audio.WaveformPyramid;
 import ch.sulco.yal.dsp.audio.onboard.AudioSystemProvider;
 import ch.sulco.yal.settings.Settings;
+import spark.Response;
 import spark.Spark;
 
 @Singleton
 public class Server implements DataEventListener {
 	private final static Logger log = LoggerFactory.getLogger(Server.class);
 
+	private static final int DEFAULT_WAVEFORM_WIDTH = 1000;
+	private static final int MAX_WAVEFORM_WIDTH = 10000;
+
+	@Inject
+	private AppConfig appConfig;
+
 	@Inject
 	private AudioSystemProvider audioSystemProvider;
 
@@ -37,8 +58,24 @@ public class Server implements DataEventListener {
 	@Inject
 	private LoopActivator loopActivator;
 
+	@Inject
+	private MidiDispatcher midiDispatcher;
+
+	@Inject
+	private MeterFeed meterFeed;
+
+	@Inject
+	private WaveformCache waveformCache;
+
 	private final Gson gson = new Gson();
 
+	private final UpdateFeed updateFeed = new UpdateFeed();
+	private final ScheduledExecutorService updateService = Executors.newSingleThreadScheduledExecutor(r -> {
+		Thread thread = new Thread(r, "UiUpdates");
+		thread.setDaemon(true);
+		return thread;
+	});
+
 	public Server() {
 
 		Spark.staticFileLocation("/public");
@@ -53,11 +90,17 @@ public class Server implements DataEventListener {
 		get("/looperstate", (req, res) -> this.getLooperState());
 		get("/channels", (req, res) -> this.getChannels());
 		get("/loops", (req, res) -> this.getLoops());
+		get("/loop/:loopId", (req, res) -> this.getLoop(Long.valueOf(req.params(":loopId")), res));
+		get("/waveform/:loopId/:sampleId",
+				(req, res) -> this.getWaveform(Long.parseLong(req.params(":loopId")), Long.parseLong(req.params(":sampleId")),
+						req.queryParams("from"), req.queryParams("to"), req.queryParams("width"), res));
 		get("/settings", (req, res) -> this.getSettings());
 		get("/settings/available/audio", (req, res) -> this.gson.toJson(this.audioSystemProvider.getAvailableAudioSettings()));
 
 		get("/save", (req, res) -> this.save());
 
+		get("/metrics/midi", (req, res) -> this.gson.toJson(this.midiDispatcher.getMetrics()));
+
 		Spark.post("/settings/new", (req, res) -> this.updateSettings(gson.fromJson(req.body(), Settings.class)));
 
 		put("/activateLoop/:loopId", (req, res) -> this.activateLoop(Long.valueOf(req.params(":loopId"))));
@@ -81,7 +124,9 @@ public class Server implements DataEventListener {
 
 	@PostConstruct
 	public void setup() {
-		this.dataStore.addListener(this);
+		this.dataStore.addUiListener(this);
+		long interval = this.appConfig.getUiUpdateInterval();
+		this.updateService.scheduleAtFixedRate(this::flushUpdates, interval, interval, TimeUnit.MILLISECONDS);
 	}
 
 	private String getSettings() {
@@ -102,7 +147,55 @@ public class Server implements DataEventListener {
 	}
 
 	private String getLoops() {
-		return this.gson.toJson(this.dataStore.getLoops());
+		JsonArray loops = new JsonArray();
+		for (Loop loop : this.dataStore.getLoops()) {
+			loops.add(this.updateFeed.snapshot(loop));
+		}
+		return this.gson.toJson(loops);
+	}
+
+	private String getLoop(Long loopId, Response response) {
+		Loop loop = this.dataStore.getLoop(loopId);
+		if (loop == null) {
+			response.status(404);
+			return "Unknown loop [" + loopId + "]";
+		}
+		return this.gson.toJson(this.updateFeed.snapshot(loop));
+	}
+
+	/**
+	 * Min/max pairs for {@code width} pixels between frames {@code from} and
+	 * {@code to}, the whole sample by default.
+	 */
+	private String getWaveform(Long loopId, Long sampleId, String from, String to, String width, Response response) {
+		Sample sample = this.dataStore.getSample(loopId, sampleId);
+		WaveformPyramid pyramid = sample == null ? null : this.waveformCache.get(sample);
+		if (pyramid == null) {
+			response.status(404);
+			return "No waveform for sample [" + loopId + "][" + sampleId + "]";
+		}
+		int fromFrame;
+		int toFrame;
+		int pixels;
+		try {
+			fromFrame = from == null ? 0 : Integer.parseInt(from);
+			toFrame = to == null ? pyramid.getFrameCount() : Integer.parseInt(to);
+			pixels = Math.min(MAX_WAVEFORM_WIDTH, width == null ? DEFAULT_WAVEFORM_WIDTH : Integer.parseInt(width));
+		} catch (NumberFormatException e) {
+			response.status(400);
+			return "Invalid waveform range [" + e.getMessage() + "]";
+		}
+		if (fromFrame < 0 || toFrame <= fromFrame || pixels <= 0) {
+			response.status(400);
+			return "Invalid waveform range [from=" + fromFrame + "][to=" + toFrame + "][width=" + pixels + "]";
+		}
+		JsonObject waveform = new JsonObject();
+		waveform.addProperty("sampleId", sampleId);
+		waveform.addProperty("frameCount", pyramid.getFrameCount());
+		waveform.addProperty("from", fromFrame);
+		waveform.addProperty("to", toFrame);
+		waveform.add("peaks", this.gson.toJsonTree(pyramid.getPeaks(fromFrame, toFrame, pixels)));
+		return this.gson.toJson(waveform);
 	}
 
 	private String updateSettings(Settings settings) {
@@ -172,6 +265,41 @@ public class Server implements DataEventListener {
 
 	@Override
 	public void onDataEvent(DataEvent event) {
-		UpdatesWebSocket.getInstance().send(this.gson.toJson(event));
+		this.updateFeed.add(event);
+	}
+
+	private void flushUpdates() {
+		try {
+			String meters = this.readMeters();
+			UpdateBroadcaster broadcaster = UpdatesWebSocket.getBroadcaster();
+			if (meters != null && broadcaster.hasClients()) {
+				broadcaster.broadcast("meters", meters);
+			}
+			this.updateFeed.flush(broadcaster);
+		} catch (RuntimeException e) {
+			log.error("Unable to flush updates", e);
+		}
+	}
+
+	/**
+	 * @return the levels since the last update as
+	 *         {@code {"eventType":"MetersUpdated","levels":{"<channelId>":[peak,rms]}}},
+	 *         or null if no channel processed audio
+	 */
+	private String readMeters() {
+		JsonObject levels = new JsonObject();
+		this.meterFeed.read((channelId, peak, rms) -> {
+			JsonArray level = new JsonArray();
+			level.add(new JsonPrimitive(Math.round(peak * 1000) / 1000f));
+			level.add(new JsonPrimitive(Math.round(rms * 1000) / 1000f));
+			levels.add(String.valueOf(channelId), level);
+		});
+		if (levels.entrySet().isEmpty()) {
+			return null;
+		}
+		JsonObject meters = new JsonObject();
+		meters.addProperty("eventType", "MetersUpdated");
+		meters.add("levels", levels);
+		return meters.toString();
 	}
 }
@@ -0,0 +1,128 @@
+package ch.sulco.yal.web;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.eclipse.jetty.websocket.api.Session;
+import org.eclipse.jetty.websocket.api.WriteCallback;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Fans serialized updates out to every connected client. Each client has a
+ * bounded outbound queue keyed by entity with at most one asynchronous send
+ * in flight, so a slow client only collapses or drops its own updates. A
+ * client whose send fails is disconnected.
+ */
+public class UpdateBroadcaster {
+	private final static Logger log = LoggerFactory.getLogger(UpdateBroadcaster.class);
+
+	private static final int MAX_PENDING_MESSAGES = 64;
+
+	private final Map<Session, Client> clients = new ConcurrentHashMap<>();
+
+	public void addSession(Session session) {
+		this.clients.put(session, new Client(session));
+		log.info("Client connected [" + session.getRemoteAddress() + "], now has " + this.clients.size());
+	}
+
+	public void removeSession(Session session) {
+		this.clients.remove(session);
+		log.info("Client disconnected [" + session.getRemoteAddress() + "], now has " + this.clients.size());
+	}
+
+	public boolean hasClients() {
+		return !this.clients.isEmpty();
+	}
+
+	public int getClientCount() {
+		return this.clients.size();
+	}
+
+	public void send(Session session, Object entityKey, String message) {
+		Client client = this.clients.get(session);
+		if (client != null) {
+			client.enqueue(entityKey, message);
+		}
+	}
+
+	public void broadcast(Object entityKey, String message) {
+		for (Client client : this.clients.values()) {
+			client.enqueue(entityKey, message);
+		}
+	}
+
+	private class Client implements WriteCallback {
+		private final Session session;
+		private final LinkedHashMap<Object, String> pending = new LinkedHashMap<>();
+		private boolean sending;
+		private boolean failed;
+		private long dropped;
+
+		Client(Session session) {
+			this.session = session;
+		}
+
+		void enqueue(Object entityKey, String message) {
+			synchronized (this) {
+				if (this.failed) {
+					return;
+				}
+				if (!this.pending.containsKey(entityKey) && this.pending.size() == MAX_PENDING_MESSAGES) {
+					Iterator<Object> eldest = this.pending.keySet().iterator();
+					eldest.next();
+					eldest.remove();
+					this.dropped++;
+					if (Long.bitCount(this.dropped) == 1) {
+						log.warn("Client too slow, dropped update [" + this.session.getRemoteAddress() + "][dropped=" + this.dropped + "]");
+					}
+				}
+				// a newer state of the same entity replaces the queued one in place
+				this.pending.put(entityKey, message);
+				if (this.sending) {
+					return;
+				}
+				this.sending = true;
+			}
+			this.sendNext();
+		}
+
+		/**
+		 * Sends the next pending update; only called by the thread that set
+		 * {@code sending}, and never while holding the monitor since the
+		 * remote may call back on the same thread.
+		 */
+		private void sendNext() {
+			String message;
+			synchronized (this) {
+				Iterator<String> iterator = this.pending.values().iterator();
+				if (this.failed || !iterator.hasNext() || !this.session.isOpen()) {
+					this.sending = false;
+					return;
+				}
+				message = iterator.next();
+				iterator.remove();
+			}
+			this.session.getRemote().sendString(message, this);
+		}
+
+		@Override
+		public void writeSuccess() {
+			this.sendNext();
+		}
+
+		@Override
+		public void writeFailed(Throwable e) {
+			log.warn("Unable to send update, disconnecting [" + this.session.getRemoteAddress() + "]: " + e.getMessage());
+			synchronized (this) {
+				this.failed = true;
+				this.sending = false;
+				this.pending.clear();
+			}
+			UpdateBroadcaster.this.removeSession(this.session);
+			this.session.close();
+		}
+	}
+}
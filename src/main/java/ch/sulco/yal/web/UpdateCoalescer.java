@@ -0,0 +1,49 @@
+package ch.sulco.yal.web;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Keeps only the latest update per entity until the next flush. Entities
+ * are flushed in the order they first changed within the window.
+ */
+public class UpdateCoalescer<T> {
+
+	private final Function<T, Object> entityKey;
+	private Map<Object, T> pending = new LinkedHashMap<>();
+	private long received;
+	private long flushed;
+
+	public UpdateCoalescer(Function<T, Object> entityKey) {
+		this.entityKey = entityKey;
+	}
+
+	public synchronized void add(T update) {
+		this.pending.put(this.entityKey.apply(update), update);
+		this.received++;
+	}
+
+	public List<T> drain() {
+		Map<Object, T> drained;
+		synchronized (this) {
+			if (this.pending.isEmpty()) {
+				return new ArrayList<>(0);
+			}
+			drained = this.pending;
+			this.pending = new LinkedHashMap<>();
+			this.flushed += drained.size();
+		}
+		return new ArrayList<>(drained.values());
+	}
+
+	public synchronized long getReceivedCount() {
+		return this.received;
+	}
+
+	public synchronized long getFlushedCount() {
+		return this.flushed;
+	}
+}
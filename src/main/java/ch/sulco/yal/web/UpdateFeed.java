@@ -0,0 +1,77 @@
+package ch.sulco.yal.web;
+
+import java.util.List;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+
+import ch.sulco.yal.dm.Loop;
+import ch.sulco.yal.dsp.DataStore.ChannelCreated;
+import ch.sulco.yal.dsp.DataStore.ChannelUpdated;
+import ch.sulco.yal.dsp.DataStore.DataEvent;
+import ch.sulco.yal.dsp.DataStore.LoopCreated;
+import ch.sulco.yal.dsp.DataStore.LoopUpdated;
+
+/**
+ * Path of data events to the UI clients: events are coalesced per entity,
+ * loop changes are delta encoded and each update is serialized once for
+ * every client's outbound queue.
+ */
+public class UpdateFeed {
+
+	private final Gson gson = new Gson();
+	private final LoopDeltaEncoder loopDeltaEncoder = new LoopDeltaEncoder();
+	private final UpdateCoalescer<DataEvent> updateCoalescer = new UpdateCoalescer<>(UpdateFeed::getEntityKey);
+
+	public void add(DataEvent event) {
+		this.updateCoalescer.add(event);
+	}
+
+	/**
+	 * Sends the updates collected since the last flush. They are encoded even
+	 * without clients so the loop shadows stay current for the next snapshot.
+	 */
+	public void flush(UpdateBroadcaster broadcaster) {
+		List<DataEvent> events = this.updateCoalescer.drain();
+		boolean hasClients = broadcaster.hasClients();
+		for (DataEvent event : events) {
+			String message = this.serialize(event);
+			if (message != null && hasClients) {
+				broadcaster.broadcast(getEntityKey(event), message);
+			}
+		}
+	}
+
+	/**
+	 * @return the loop as last sent to the clients, including its revision
+	 */
+	public JsonObject snapshot(Loop loop) {
+		return this.loopDeltaEncoder.snapshot(loop);
+	}
+
+	private String serialize(DataEvent event) {
+		if (event instanceof LoopCreated) {
+			return this.loopDeltaEncoder.created(((LoopCreated) event).getLoop());
+		}
+		if (event instanceof LoopUpdated) {
+			return this.loopDeltaEncoder.updated(((LoopUpdated) event).getLoop());
+		}
+		return this.gson.toJson(event);
+	}
+
+	private static Object getEntityKey(DataEvent event) {
+		if (event instanceof LoopCreated) {
+			return "loop-" + ((LoopCreated) event).getLoop().getId();
+		}
+		if (event instanceof LoopUpdated) {
+			return "loop-" + ((LoopUpdated) event).getLoop().getId();
+		}
+		if (event instanceof ChannelCreated) {
+			return "channel-" + ((ChannelCreated) event).getChannel().getId();
+		}
+		if (event instanceof ChannelUpdated) {
+			return "channel-" + ((ChannelUpdated) event).getChannel().getId();
+		}
+		return event.getEventType();
+	}
+}
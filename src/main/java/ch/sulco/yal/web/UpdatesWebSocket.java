@@ -1,7 +1,5 @@
 package ch.sulco.yal.web;
 
-import java.io.IOException;
-
 import org.eclipse.jetty.websocket.api.Session;
 import org.eclipse.jetty.websocket.api.annotations.OnWebSocketClose;
 import org.eclipse.jetty.websocket.api.annotations.OnWebSocketConnect;
@@ -14,43 +12,25 @@ import org.slf4j.LoggerFactory;
 public class UpdatesWebSocket {
 	private final static Logger log = LoggerFactory.getLogger(UpdatesWebSocket.class);
 
-	private Session session;
-
-	private static UpdatesWebSocket instance;
-
-	public UpdatesWebSocket() {
-		instance = this;
-	}
+	private static final UpdateBroadcaster broadcaster = new UpdateBroadcaster();
 
-	public static UpdatesWebSocket getInstance() {
-		if (instance == null) {
-			new UpdatesWebSocket();
-		}
-		return instance;
+	public static UpdateBroadcaster getBroadcaster() {
+		return broadcaster;
 	}
 
 	@OnWebSocketConnect
 	public void connected(Session session) {
-		this.session = session;
+		broadcaster.addSession(session);
 	}
 
 	@OnWebSocketClose
-	public void closed(int statusCode, String reason) {
-		this.session = null;
+	public void closed(Session session, int statusCode, String reason) {
+		broadcaster.removeSession(session);
 	}
 
 	@OnWebSocketMessage
-	public void message(String message) throws IOException {
+	public void message(Session session, String message) {
 		log.info("Got: " + message);
-		this.session.getRemote().sendString(message);
-	}
-
-	public void send(String message) {
-		try {
-			if (this.session != null)
-				this.session.getRemote().sendString(message);
-		} catch (IOException e) {
-			e.printStackTrace();
-		}
+		broadcaster.send(session, "echo", message);
 	}
 }
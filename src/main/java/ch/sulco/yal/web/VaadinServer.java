@@ -61,7 +61,7 @@ public class VaadinServer implements DataEventListener {
 
 	@PostConstruct
 	public void setup() {
-		this.dataStore.addListener(this);
+		this.dataStore.addUiListener(this);
 	}
 
 	public DataStore getDataStore() {
@@ -31,7 +31,7 @@ public class YalUI extends UI implements DataEventListener {
 
 	@Override
 	protected void init(VaadinRequest request) {
-		VaadinServer.getInstance().getDataStore().addListener(this);
+		VaadinServer.getInstance().getDataStore().addUiListener(this);
 
 		VerticalLayout content = new VerticalLayout();
 		content.setMargin(true);
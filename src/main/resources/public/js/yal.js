@@ -22,7 +22,46 @@ var app = angular.module('yalApp', []).filter('timeformat', function() {
     }
 });
 
+app.directive('yalWaveform', function($http) {
+	// Draws the overview of a sample, one min/max pair per pixel column.
+	return {
+		restrict : 'A',
+		scope : {
+			loopId : '=',
+			sample : '='
+		},
+		link : function(scope, element) {
+			var canvas = element[0];
+			function draw(waveform) {
+				var context = canvas.getContext('2d');
+				var middle = canvas.height / 2;
+				context.clearRect(0, 0, canvas.width, canvas.height);
+				context.fillStyle = '#9c9';
+				for (var x = 0; 2 * x + 1 < waveform.peaks.length; x++) {
+					var top = middle - waveform.peaks[2 * x + 1] / 32768 * middle;
+					var bottom = middle - waveform.peaks[2 * x] / 32768 * middle;
+					context.fillRect(x, top, 1, Math.max(1, bottom - top));
+				}
+			}
+			// a sample's data only changes once it has finished loading
+			scope.$watch('sample.id + ":" + sample.loading', function() {
+				canvas.width = canvas.clientWidth;
+				if (scope.sample.loading || canvas.width == 0) {
+					return;
+				}
+				$http({
+					method : 'GET',
+					url : '/waveform/' + scope.loopId + '/' + scope.sample.id + '?width=' + canvas.width
+				}).success(function(data, status, headers, config) {
+					draw(data);
+				});
+			});
+		}
+	};
+});
+
 app.controller('yalCtrl', function($scope, $http, $interval) {
+	$scope.meters = {};
 	var socket = new WebSocket("ws://localhost:4567/updates");
 	socket.onmessage = function (e) {
 	  console.log('Server: ' + e.data);
@@ -32,11 +71,14 @@ app.controller('yalCtrl', function($scope, $http, $interval) {
 	  } else if(event.eventType == 'LoopCreated'){
 	    $scope.loops[event.loop.id] = event.loop;
 	    updateCurrentLoop();	
-	  } else if(event.eventType == 'LoopUpdated'){
-	    $scope.loops[event.loop.id] = event.loop;
-	    updateCurrentLoop();	
+	  } else if(event.eventType == 'LoopDelta'){
+	    applyLoopDelta(event);
 	  } else if(event.eventType == 'LooperStateUpdated'){
 	    $scope.looperState = event.looperState;
+	  } else if(event.eventType == 'MetersUpdated'){
+	    angular.forEach(event.levels, function(level, channelId){
+	      $scope.meters[channelId] = level;
+	    });
 	  }
 	};
 
@@ -184,6 +226,38 @@ app.controller('yalCtrl', function($scope, $http, $interval) {
 		});
 	}
 	
+	function updateLoop(loopId){
+		$http({
+			method : 'GET',
+			url : '/loop/' + loopId
+		}).success(function(data, status, headers, config) {
+			$scope.loops[data.id] = data;
+			updateCurrentLoop();
+		}).error(function(data, status, headers, config) {
+		});
+	}
+	
+	function applyLoopDelta(delta){
+		var loop = $scope.loops[delta.loopId];
+		if(!loop || loop.revision !== delta.baseRevision){
+			// missed a revision, fetch the whole loop again
+			updateLoop(delta.loopId);
+			return;
+		}
+		angular.extend(loop, delta.changes);
+		angular.forEach(delta.samples, function(sampleDelta){
+			var samples = loop.samples.filter(function(s){ return s.id === sampleDelta.id; });
+			if(samples.length == 1){
+				angular.extend(samples[0], sampleDelta);
+			} else {
+				loop.samples.push(sampleDelta);
+			}
+		});
+		loop.samples = loop.samples.filter(function(s){ return delta.removedSamples.indexOf(s.id) < 0; });
+		loop.revision = delta.revision;
+		updateCurrentLoop();
+	}
+	
 	function updateCurrentLoop(){
 		var activeLoops = $scope.loops.filter(function(n){ return n.active === true; });
 		if(activeLoops.length == 1){
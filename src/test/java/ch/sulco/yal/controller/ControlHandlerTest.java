@@ -1,10 +1,13 @@
 package ch.sulco.yal.controller;
 
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import java.util.HashMap;
 import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
 
 import net.sourceforge.jeval.Evaluator;
 
@@ -20,6 +23,7 @@ import ch.sulco.yal.dsp.DataStore;
 import ch.sulco.yal.dsp.audio.Processor;
 
 import com.google.common.collect.Lists;
+import com.google.gson.Gson;
 
 @RunWith(MockitoJUnitRunner.class)
 public class ControlHandlerTest {
@@ -71,6 +75,73 @@ public class ControlHandlerTest {
 		verify(this.processor).setChannelRecording(30L, true);
 	}
 
+	@Test
+	public void shouldTriggerWildcardMapping() {
+		Mapping mapping = new Mapping();
+		mapping.setProcessorMethod("setChannelRecording");
+		mapping.setProcessorMethodArguments(new LinkedList<>());
+		mapping.getProcessorMethodArguments().add(new MappingMethodArgument("channelId", Long.class.getName()));
+		mapping.getProcessorMethodArguments().add(new MappingMethodArgument("recording", Boolean.class.getName()));
+		mapping.setTriggerValueMap(new HashMap<>());
+		mapping.getTriggerValueMap().put("command", 176);
+		mapping.setValueExpressionMap(new HashMap<>());
+		mapping.getValueExpressionMap().put("channelId", "#{data1} - 64");
+		mapping.getValueExpressionMap().put("recording", "#{data2} > 0");
+		when(this.dataStore.getMappings()).thenReturn(Lists.newArrayList(mapping));
+
+		this.controlHandler.handleMessage(176, 5, 66, 127);
+		this.controlHandler.handleMessage(176, 0, 67, 0);
+
+		verify(this.processor).setChannelRecording(2L, true);
+		verify(this.processor).setChannelRecording(3L, false);
+	}
+
+	@Test
+	public void shouldNotTriggerOnOtherData2() {
+		Mapping mapping = new Mapping();
+		mapping.setProcessorMethod("play");
+		mapping.setTriggerValueMap(new HashMap<>());
+		mapping.getTriggerValueMap().put("command", 176);
+		mapping.getTriggerValueMap().put("data1", 41);
+		mapping.getTriggerValueMap().put("data2", 0);
+		when(this.dataStore.getMappings()).thenReturn(Lists.newArrayList(mapping));
+
+		this.controlHandler.handleMessage(176, 0, 41, 127);
+
+		verify(this.processor, never()).play();
+	}
+
+	@Test
+	public void shouldRecompileMappingEditedInPlace() {
+		Mapping mapping = new Mapping();
+		mapping.setProcessorMethod("play");
+		mapping.setTriggerValueMap(new HashMap<>());
+		mapping.getTriggerValueMap().put("command", 176);
+		mapping.getTriggerValueMap().put("data1", 41);
+		List<Mapping> mappings = Lists.newArrayList(mapping);
+		when(this.dataStore.getMappings()).thenReturn(mappings);
+
+		this.controlHandler.handleMessage(176, 0, 41, 127);
+		mapping.setProcessorMethod("stop");
+		this.controlHandler.handleMessage(176, 0, 41, 127);
+
+		verify(this.processor).play();
+		verify(this.processor).stop();
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	public void shouldTriggerMappingLoadedFromJson() {
+		Mapping mapping = new Mapping();
+		mapping.setProcessorMethod("loop");
+		mapping.setTriggerValueMap(new Gson().fromJson("{\"command\": 176, \"channel\": 0, \"data1\": 42}", Map.class));
+		when(this.dataStore.getMappings()).thenReturn(Lists.newArrayList(mapping));
+
+		this.controlHandler.handleMessage(176, 0, 42, 127);
+
+		verify(this.processor).loop();
+	}
+
 	@Test
 	public void test() throws Exception {
 		Evaluator e = new Evaluator();
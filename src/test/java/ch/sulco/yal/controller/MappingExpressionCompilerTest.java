@@ -0,0 +1,29 @@
+package ch.sulco.yal.controller;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+import org.junit.Test;
+
+public class MappingExpressionCompilerTest {
+
+	@Test
+	public void shouldEvaluateWithOperatorPrecedence() {
+		MappingExpression expression = MappingExpressionCompiler.compile("(#{data1} - 64) * 2 + #{channel} % 4");
+
+		assertThat(expression.evaluate(176, 5, 70, 0), is(13.0));
+	}
+
+	@Test
+	public void shouldEvaluateComparisonsAsJevalBooleans() {
+		MappingExpression expression = MappingExpressionCompiler.compile("#{data2} >= 64 && !(#{data1} == 3)");
+
+		assertThat(expression.evaluate(176, 0, 4, 127), is(1.0));
+		assertThat(expression.evaluate(176, 0, 3, 127), is(0.0));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void shouldRejectUnsupportedExpression() {
+		MappingExpressionCompiler.compile("abs(#{data1})");
+	}
+}
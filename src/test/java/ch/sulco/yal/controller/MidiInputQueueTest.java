@@ -0,0 +1,45 @@
+package ch.sulco.yal.controller;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+public class MidiInputQueueTest {
+
+	@Test
+	public void shouldPollMessagesInOrder() {
+		MidiInputQueue queue = new MidiInputQueue(4);
+		List<String> received = new ArrayList<>();
+		MidiInputQueue.Handler handler = (command, channel, data1, data2, timeStamp, receivedNanos) -> received
+				.add(command + "/" + channel + "/" + data1 + "/" + data2 + "@" + timeStamp);
+
+		queue.offer(176, 0, 64, 127, 10L);
+		queue.offer(144, 15, 1, 0, -1L);
+
+		assertThat(queue.size(), is(2));
+		assertThat(queue.poll(handler), is(true));
+		assertThat(queue.poll(handler), is(true));
+		assertThat(queue.poll(handler), is(false));
+		assertThat(received.get(0), is("176/0/64/127@10"));
+		assertThat(received.get(1), is("144/15/1/0@-1"));
+	}
+
+	@Test
+	public void shouldDropWhenFull() {
+		MidiInputQueue queue = new MidiInputQueue(2);
+
+		assertThat(queue.offer(176, 0, 1, 1, 0L), is(true));
+		assertThat(queue.offer(176, 0, 2, 1, 0L), is(true));
+		assertThat(queue.offer(176, 0, 3, 1, 0L), is(false));
+		queue.poll((command, channel, data1, data2, timeStamp, receivedNanos) -> {
+		});
+
+		assertThat(queue.getDroppedCount(), is(1L));
+		assertThat(queue.offer(176, 0, 4, 1, 0L), is(true));
+		assertThat(queue.size(), is(2));
+	}
+}
@@ -15,7 +15,6 @@ public class LoopTest {
 		loop.setActive(true);
 		loop.setBars(12);
 		loop.setBeats(4);
-		loop.setClickTrack(new Sample());
 		loop.setClickTrackMuted(true);
 		loop.setDataLength(120000);
 		loop.setId(121212L);
@@ -0,0 +1,49 @@
+package ch.sulco.yal.dm;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+import javax.sound.sampled.AudioFormat;
+
+import org.junit.Test;
+
+public class PcmBufferTest {
+
+	private final AudioFormat audioFormat = new AudioFormat(44100, 16, 2, true, false);
+
+	@Test
+	public void shouldReadInterleavedLittleEndianShorts() {
+		PcmBuffer buffer = PcmBuffer.wrap(new byte[] { 0x01, 0x02, (byte) 0xFF, (byte) 0xFF, 0x00, (byte) 0x80, 0x00, 0x40 },
+				this.audioFormat);
+
+		assertThat(buffer.getFrameCount(), is(2));
+		assertThat(buffer.getChannels(), is(2));
+		assertThat(buffer.getShort(0, 0), is((short) 0x0201));
+		assertThat(buffer.getShort(0, 1), is((short) -1));
+		assertThat(buffer.getFloat(1, 0), is(-1f));
+		assertThat(buffer.getFloat(1, 1), is(0.5f));
+	}
+
+	@Test
+	public void shouldPadCopyWithSilence() {
+		PcmBuffer buffer = PcmBuffer.allocate(2, this.audioFormat);
+		buffer.setShort(1, 1, (short) 1234);
+
+		PcmBuffer copy = buffer.copyOf(4);
+
+		assertThat(copy.getFrameCount(), is(4));
+		assertThat(copy.getShort(1, 1), is((short) 1234));
+		assertThat(copy.getShort(3, 1), is((short) 0));
+	}
+
+	@Test
+	public void shouldShareDataWithSlice() {
+		PcmBuffer buffer = PcmBuffer.allocate(4, this.audioFormat);
+		PcmBuffer slice = buffer.slice(2, 2);
+
+		slice.setFloat(0, 0, 0.25f);
+
+		assertThat(slice.getFrameCount(), is(2));
+		assertThat(buffer.getFloat(2, 0), is(0.25f));
+	}
+}
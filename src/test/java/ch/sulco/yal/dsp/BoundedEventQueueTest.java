@@ -0,0 +1,38 @@
+package ch.sulco.yal.dsp;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+import org.junit.Test;
+
+public class BoundedEventQueueTest {
+
+	@Test
+	public void shouldDropOldestWhenFull() {
+		BoundedEventQueue<String> queue = new BoundedEventQueue<>(2, OverflowPolicy.DROP_OLDEST);
+
+		queue.offer("a");
+		queue.offer("b");
+		assertThat(queue.offer("c"), is(false));
+
+		assertThat(queue.getDroppedCount(), is(1L));
+		assertThat(queue.poll(), is("b"));
+		assertThat(queue.poll(), is("c"));
+		assertThat(queue.poll(), is(nullValue()));
+	}
+
+	@Test
+	public void shouldDropNewestWhenFull() {
+		BoundedEventQueue<String> queue = new BoundedEventQueue<>(2, OverflowPolicy.DROP_NEWEST);
+
+		queue.offer("a");
+		queue.offer("b");
+		assertThat(queue.offer("c"), is(false));
+
+		assertThat(queue.getDroppedCount(), is(1L));
+		assertThat(queue.poll(), is("a"));
+		assertThat(queue.poll(), is("b"));
+		assertThat(queue.size(), is(0));
+	}
+}
@@ -0,0 +1,78 @@
+package ch.sulco.yal.dsp;
+
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.when;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import ch.sulco.yal.AppConfig;
+import ch.sulco.yal.dm.Loop;
+import ch.sulco.yal.dsp.audio.onboard.Synchronizer;
+
+@RunWith(MockitoJUnitRunner.class)
+public class ClickTrackGeneratorTest {
+
+	@InjectMocks
+	private ClickTrackGenerator clickTrackGenerator;
+
+	@Mock
+	private AppConfig appConfig;
+
+	@Mock
+	private DataStore dataStore;
+
+	@Mock
+	private Synchronizer synchronizer;
+
+	private final Loop loop = new Loop(0L);
+
+	@Before
+	public void setup() {
+		when(this.appConfig.getSampleRate()).thenReturn(44100f);
+		this.loop.setBars(2);
+		this.loop.setBeats(4);
+		when(this.dataStore.getCurrentLoop()).thenReturn(this.loop);
+		when(this.synchronizer.isRunning()).thenReturn(true);
+		when(this.synchronizer.getLoopFrames()).thenReturn(80000L);
+		this.clickTrackGenerator.setup();
+	}
+
+	@Test
+	public void shouldMixAccentedClicksAtBeatsAcrossLoopEnd() {
+		// beats every 10000 frames, the second bar starts at 40000
+		float[] accent = this.render(39900, 2);
+		float[] beat = this.render(9900, 2);
+		assertThat(peak(accent, 0, 100), is(0f));
+		assertThat(peak(accent, 100, 1000), greaterThan(peak(beat, 100, 1000)));
+		assertThat(peak(beat, 100, 1000), greaterThan(0f));
+		assertThat(peak(beat, 2000, 4096), is(0f));
+
+		float[] wrapped = this.render(79900, 2);
+		assertThat(peak(wrapped, 100, 1000), is(peak(accent, 100, 1000)));
+
+		this.loop.setClickTrackMuted(true);
+		assertThat(peak(this.render(79900, 2), 0, 4096), is(0f));
+	}
+
+	private float[] render(long position, int channels) {
+		when(this.synchronizer.getCurrentFramePosition()).thenReturn(position);
+		float[] mix = new float[4096 * channels];
+		this.clickTrackGenerator.mix(mix, 4096, channels);
+		return mix;
+	}
+
+	private static float peak(float[] mix, int fromFrame, int toFrame) {
+		float peak = 0;
+		for (int i = 2 * fromFrame; i < 2 * toFrame; i++) {
+			peak = Math.max(peak, Math.abs(mix[i]));
+		}
+		return peak;
+	}
+}
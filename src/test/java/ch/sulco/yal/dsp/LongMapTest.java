@@ -0,0 +1,43 @@
+package ch.sulco.yal.dsp;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+import org.junit.Test;
+
+public class LongMapTest {
+
+	@Test
+	public void shouldGrowAndKeepAllEntries() {
+		LongMap<String> map = new LongMap<>();
+		for (long key = 0; key < 1000; key++) {
+			map.put(key * 16, "value-" + key);
+		}
+
+		assertThat(map.size(), is(1000));
+		for (long key = 0; key < 1000; key++) {
+			assertThat(map.get(key * 16), is("value-" + key));
+		}
+		assertThat(map.get(8), is(nullValue()));
+		assertThat(map.put(0, "replaced"), is("value-0"));
+		assertThat(map.size(), is(1000));
+	}
+
+	@Test
+	public void shouldFindRemainingKeysAfterRemove() {
+		LongMap<Long> map = new LongMap<>();
+		for (long key = 0; key < 200; key++) {
+			map.put(key, key);
+		}
+		for (long key = 0; key < 200; key += 3) {
+			assertThat(map.remove(key), is(key));
+		}
+
+		for (long key = 0; key < 200; key++) {
+			assertThat(map.get(key), is(key % 3 == 0 ? null : key));
+		}
+		assertThat(map.remove(0), is(nullValue()));
+		assertThat(map.size(), is(133));
+	}
+}
@@ -0,0 +1,94 @@
+package ch.sulco.yal.dsp;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.when;
+
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import ch.sulco.yal.AppConfig;
+import ch.sulco.yal.dm.Channel;
+import ch.sulco.yal.dm.ChannelDirection;
+import ch.sulco.yal.dm.Loop;
+import ch.sulco.yal.dm.Sample;
+
+@RunWith(MockitoJUnitRunner.class)
+public class SessionJournalTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@InjectMocks
+	private SessionJournal sessionJournal;
+
+	@Mock
+	private AppConfig appConfig;
+
+	@Before
+	public void setup() {
+		when(this.appConfig.getDataPath()).thenReturn(this.folder.getRoot().toString());
+		when(this.appConfig.getJournalCompactionRecords()).thenReturn(3);
+	}
+
+	@Test
+	public void shouldReplayAppendedRecordsUpToTornTail() throws Exception {
+		this.sessionJournal.open();
+		Loop loop = new Loop(4L);
+		loop.setName("verse");
+		assertThat(this.sessionJournal.loopChanged(loop), is(false));
+		Sample sample = new Sample(9L);
+		sample.setMute(false);
+		assertThat(this.sessionJournal.sampleCreated(4L, sample), is(false));
+		Channel channel = new Channel(ChannelDirection.IN);
+		channel.setId(2L);
+		channel.setMonitoring(true);
+		assertThat(this.sessionJournal.channelChanged(channel), is(true));
+
+		long deadline = System.currentTimeMillis() + 5000;
+		while (this.replay().size() < 3 && System.currentTimeMillis() < deadline) {
+			Thread.sleep(10);
+		}
+		Files.write(this.folder.getRoot().toPath().resolve("journal-0.log"), new byte[] { 42, 0, 0, 0, 1, 2 },
+				StandardOpenOption.APPEND);
+
+		assertThat(this.replay().toString(), is("[loop 4 verse, sample 4 9 false, channel 2 true]"));
+	}
+
+	private List<String> replay() {
+		List<String> replayed = new ArrayList<>();
+		this.sessionJournal.replay(new SessionJournal.Handler() {
+			@Override
+			public void loop(Loop loop) {
+				replayed.add("loop " + loop.getId() + " " + loop.getName());
+			}
+
+			@Override
+			public void sampleCreated(long loopId, Sample sample) {
+				replayed.add("sample " + loopId + " " + sample.getId() + " " + sample.isMute());
+			}
+
+			@Override
+			public void sampleUpdated(long loopId, Sample sample) {
+				replayed.add("updated " + loopId + " " + sample.getId());
+			}
+
+			@Override
+			public void channelMonitoring(long channelId, boolean monitoring) {
+				replayed.add("channel " + channelId + " " + monitoring);
+			}
+		});
+		return replayed;
+	}
+}
@@ -0,0 +1,112 @@
+package ch.sulco.yal.dsp;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.when;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import javax.sound.sampled.AudioFormat;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import ch.sulco.yal.AppConfig;
+import ch.sulco.yal.dm.Loop;
+import ch.sulco.yal.dm.PcmBuffer;
+import ch.sulco.yal.dm.Sample;
+
+@RunWith(MockitoJUnitRunner.class)
+public class SessionPersisterTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@InjectMocks
+	private SessionPersister sessionPersister;
+
+	@Mock
+	private AppConfig appConfig;
+
+	@Before
+	public void setup() {
+		when(this.appConfig.getDataPath()).thenReturn(this.folder.getRoot().toString());
+	}
+
+	@Test
+	public void shouldWriteRawBytesAndSkipUnchangedSamples() throws Exception {
+		byte[] bytes = new byte[256];
+		for (int i = 0; i < bytes.length; i++) {
+			bytes[i] = (byte) i;
+		}
+		Sample sample = new Sample(7L);
+		sample.setData(PcmBuffer.wrap(bytes, new AudioFormat(44100, 16, 2, true, false)));
+		Loop loop = new Loop(0L);
+		loop.addSample(sample);
+
+		this.sessionPersister.persist(Arrays.asList(loop)).get();
+		Path file = this.folder.getRoot().toPath().resolve("7.sample");
+		assertThat(Arrays.equals(Files.readAllBytes(file), bytes), is(true));
+		assertThat(Files.exists(this.folder.getRoot().toPath().resolve("loops.json")), is(true));
+
+		Files.delete(file);
+		this.sessionPersister.persist(Arrays.asList(loop)).get();
+		assertThat(Files.exists(file), is(false));
+		assertThat(Files.exists(file.resolveSibling("7.sample.tmp")), is(false));
+	}
+
+	@Test
+	public void shouldKeepRawFileOfMappedSampleWhenCompressing() throws Exception {
+		when(this.appConfig.isCompressedSampleStorage()).thenReturn(true);
+		AudioFormat format = new AudioFormat(44100, 16, 2, true, false);
+		Path file = this.folder.getRoot().toPath().resolve("9.sample");
+		Files.write(file, new byte[256]);
+		Sample sample = new Sample(9L);
+		sample.setData(PcmBuffer.map(file, format));
+		Loop loop = new Loop(0L);
+		loop.addSample(sample);
+
+		this.sessionPersister.persist(Arrays.asList(loop)).get();
+
+		assertThat(Files.exists(file), is(true));
+		assertThat(Files.exists(file.resolveSibling("9.yalc")), is(true));
+	}
+
+	@Test
+	public void shouldWriteSingleSampleOnce() throws Exception {
+		PcmBuffer data = PcmBuffer.wrap(new byte[64], new AudioFormat(44100, 16, 2, true, false));
+		Path file = this.folder.getRoot().toPath().resolve("10.sample");
+
+		assertThat(this.sessionPersister.persistSample(10L, data).get(), is(true));
+		assertThat(Files.size(file), is(64L));
+		Files.delete(file);
+		Sample sample = new Sample(10L);
+		sample.setData(data);
+		Loop loop = new Loop(0L);
+		loop.addSample(sample);
+		this.sessionPersister.persist(Arrays.asList(loop)).get();
+
+		assertThat(Files.exists(file), is(false));
+	}
+
+	@Test
+	public void shouldSkipSamplesLoadedFromDisk() throws Exception {
+		Sample sample = new Sample(8L);
+		sample.setData(PcmBuffer.wrap(new byte[64], new AudioFormat(44100, 16, 2, true, false)));
+		Loop loop = new Loop(0L);
+		loop.addSample(sample);
+
+		this.sessionPersister.loaded(8L, sample.getData());
+		this.sessionPersister.persist(Arrays.asList(loop)).get();
+
+		assertThat(Files.exists(this.folder.getRoot().toPath().resolve("8.sample")), is(false));
+	}
+}
@@ -0,0 +1,34 @@
+package ch.sulco.yal.dsp;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+import org.junit.Test;
+
+import ch.sulco.yal.dm.Loop;
+import ch.sulco.yal.dm.Sample;
+
+public class SessionSnapshotTest {
+
+	@Test
+	public void shouldLeavePreviousVersionUntouched() {
+		Loop verse = new Loop(0L);
+		verse.setActive(true);
+		verse.addSample(new Sample(1L));
+		SessionSnapshot first = SessionSnapshot.EMPTY.withLoop(verse);
+
+		Loop chorus = new Loop(1L);
+		chorus.setActive(true);
+		chorus.addSample(new Sample(2L));
+		SessionSnapshot second = first.withLoop(chorus);
+
+		assertThat(first.getLoops(), contains(verse));
+		assertThat(first.getLoop(1L), is(nullValue()));
+		assertThat(first.getSample(1L, 2L), is(nullValue()));
+		assertThat(second.getLoops(), contains(verse, chorus));
+		assertThat(second.getLoop(1L), is(chorus));
+		assertThat(second.getSample(1L, 2L).getId(), is(2L));
+	}
+}
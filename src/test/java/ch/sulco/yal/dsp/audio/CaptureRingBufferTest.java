@@ -0,0 +1,87 @@
+package ch.sulco.yal.dsp.audio;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+import org.junit.Test;
+
+public class CaptureRingBufferTest {
+
+	@Test
+	public void shouldReadWrittenBlocksAcrossWrap() {
+		CaptureRingBuffer captureBuffer = new CaptureRingBuffer(16);
+		CaptureRingBuffer.Cursor cursor = captureBuffer.newCursor();
+		byte[] data = new byte[6];
+
+		captureBuffer.write(new byte[] { 1, 2, 3, 4, 5, 6 }, 0, 6);
+		assertThat(cursor.read(data, 0, 6), is(6));
+		captureBuffer.write(new byte[] { 7, 8, 9, 10, 11, 12 }, 0, 6);
+		assertThat(cursor.read(data, 0, 6), is(6));
+		captureBuffer.write(new byte[] { 13, 14, 15, 16, 17, 18 }, 0, 6);
+
+		assertThat(cursor.available(), is(6));
+		assertThat(cursor.read(data, 0, 6), is(6));
+		assertThat(data[0], is((byte) 13));
+		assertThat(data[5], is((byte) 18));
+		assertThat(cursor.read(data, 0, 6), is(0));
+	}
+
+	@Test
+	public void shouldReadIndependentlyPerCursor() {
+		CaptureRingBuffer captureBuffer = new CaptureRingBuffer(8);
+		CaptureRingBuffer.Cursor recording = captureBuffer.newCursor();
+		CaptureRingBuffer.Cursor metering = captureBuffer.newCursor();
+		byte[] data = new byte[4];
+
+		captureBuffer.write(new byte[] { 1, 2, 3, 4 }, 0, 4);
+
+		assertThat(recording.read(data, 0, 4), is(4));
+		assertThat(metering.read(data, 0, 2), is(2));
+		assertThat(metering.getPosition(), is(2L));
+		assertThat(recording.getPosition(), is(4L));
+	}
+
+	@Test
+	public void shouldKeepOnlyNewestBytes() {
+		CaptureRingBuffer captureBuffer = new CaptureRingBuffer(16);
+		CaptureRingBuffer.Cursor cursor = captureBuffer.newCursor();
+		byte[] data = new byte[6];
+
+		captureBuffer.write(new byte[] { 1, 2, 3, 4, 5, 6 }, 0, 6);
+		assertThat(cursor.keepNewest(2), is(2));
+		assertThat(cursor.read(data, 0, 6), is(2));
+		assertThat(data[0], is((byte) 5));
+
+		// already read bytes are read again while still buffered
+		assertThat(cursor.keepNewest(4), is(4));
+		assertThat(cursor.read(data, 0, 6), is(4));
+		assertThat(data[0], is((byte) 3));
+
+		captureBuffer.write(new byte[] { 7, 8, 9, 10, 11, 12 }, 0, 6);
+		assertThat(cursor.keepNewest(16), is(10));
+		assertThat(cursor.keepNewest(0), is(0));
+	}
+
+	@Test
+	public void shouldSkipAheadWhenOverrun() {
+		CaptureRingBuffer captureBuffer = new CaptureRingBuffer(8);
+		CaptureRingBuffer.Cursor cursor = captureBuffer.newCursor();
+		byte[] data = new byte[4];
+
+		captureBuffer.write(new byte[] { 1, 2, 3, 4 }, 0, 4);
+		captureBuffer.write(new byte[] { 5, 6, 7, 8 }, 0, 4);
+		captureBuffer.write(new byte[] { 9, 10, 11, 12 }, 0, 4);
+
+		// the oldest block may already be under the next write
+		assertThat(cursor.available(), is(4));
+		assertThat(cursor.read(data, 0, 4), is(4));
+		assertThat(cursor.getOverrunBytes(), is(8L));
+		assertThat(data[0], is((byte) 9));
+		assertThat(data[3], is((byte) 12));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void shouldRejectCapacityNotPowerOfTwo() {
+		new CaptureRingBuffer(6);
+	}
+}
@@ -0,0 +1,29 @@
+package ch.sulco.yal.dsp.audio;
+
+import static org.hamcrest.Matchers.closeTo;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+import org.junit.Test;
+
+public class LevelMeterTest {
+
+	@Test
+	public void shouldTakePeakAndRmsSinceLastRead() {
+		LevelMeter levelMeter = new LevelMeter();
+		float[] peakAndRms = new float[2];
+		assertThat(levelMeter.read(peakAndRms), is(false));
+
+		// full scale negative, then half scale positive
+		levelMeter.process(new byte[] { 0, (byte) 0x80, 0, 0x40 }, 0, 4);
+		levelMeter.process(new byte[] { 0, 0x40, 0, (byte) 0xC0 }, 0, 4);
+		assertThat(levelMeter.read(peakAndRms), is(true));
+		assertThat((double) peakAndRms[0], closeTo(1, 0.0001));
+		assertThat((double) peakAndRms[1], closeTo(Math.sqrt((1 + 0.25 * 3) / 4), 0.0001));
+
+		levelMeter.process(new byte[] { 0, 0x20 }, 0, 2);
+		assertThat(levelMeter.read(peakAndRms), is(true));
+		assertThat((double) peakAndRms[0], closeTo(0.25, 0.0001));
+		assertThat((double) peakAndRms[1], closeTo(0.25, 0.0001));
+	}
+}
@@ -0,0 +1,37 @@
+package ch.sulco.yal.dsp.audio;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+import javax.sound.sampled.AudioFormat;
+
+import org.junit.Test;
+
+public class OverdubBufferTest {
+
+	private final AudioFormat audioFormat = new AudioFormat(44100, 16, 1, true, false);
+
+	@Test
+	public void shouldWrapAtLoopBoundary() {
+		OverdubBuffer overdubBuffer = new OverdubBuffer(4, this.audioFormat);
+
+		overdubBuffer.start(3);
+		overdubBuffer.write(new byte[] { 1, 0, 2, 0, 3, 0, 4, 0 }, 0, 8);
+
+		assertThat(overdubBuffer.getData().getShort(3, 0), is((short) 1));
+		assertThat(overdubBuffer.getData().getShort(0, 0), is((short) 2));
+		assertThat(overdubBuffer.getData().getShort(2, 0), is((short) 4));
+	}
+
+	@Test
+	public void shouldClearReleasedBuffer() {
+		OverdubBuffer overdubBuffer = new OverdubBuffer(2, this.audioFormat);
+		overdubBuffer.start(0);
+		overdubBuffer.write(new byte[] { 1, 0, 2, 0 }, 0, 4);
+
+		overdubBuffer.clear();
+
+		assertThat(overdubBuffer.getData().getShort(0, 0), is((short) 0));
+		assertThat(overdubBuffer.getData().getShort(1, 0), is((short) 0));
+	}
+}
@@ -0,0 +1,59 @@
+package ch.sulco.yal.dsp.audio;
+
+import static org.hamcrest.Matchers.closeTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+import static org.junit.Assert.assertThat;
+
+import org.junit.Test;
+
+import ch.sulco.yal.dm.PcmBuffer;
+import ch.sulco.yal.dm.SampleFormat;
+
+public class ResamplerTest {
+
+	@Test
+	public void shouldFitToExactLengthKeepingTheSignal() {
+		int frames = 44100;
+		PcmBuffer input = PcmBuffer.allocate(frames, 2, SampleFormat.PCM_FLOAT_32);
+		for (int frame = 0; frame < frames; frame++) {
+			input.setFloat(frame, 0, (float) (0.5 * Math.sin(2 * Math.PI * 441 * frame / 44100)));
+			input.setFloat(frame, 1, 0.25f);
+		}
+
+		PcmBuffer stretched = Resampler.fit(input, 48000);
+
+		assertThat(stretched.getFrameCount(), is(48000));
+		double maxError = 0;
+		for (int frame = 100; frame < 47900; frame++) {
+			double expected = 0.5 * Math.sin(2 * Math.PI * 441 * frame / 48000.0);
+			maxError = Math.max(maxError, Math.abs(stretched.getFloat(frame, 0) - expected));
+			maxError = Math.max(maxError, Math.abs(stretched.getFloat(frame, 1) - 0.25));
+		}
+		assertThat(maxError, lessThan(0.001));
+	}
+
+	@Test
+	public void shouldStreamBlocksAndFilterAboveNewNyquist() {
+		// half the rate: a tone well above the new Nyquist frequency must vanish
+		Resampler resampler = new Resampler(1, 0.5);
+		float[] block = new float[100];
+		float[] output = new float[resampler.getOutputCapacity(block.length)];
+		double energy = 0;
+		int outputFrames = 0;
+		for (int offset = 0; offset < 20000; offset += block.length) {
+			for (int i = 0; i < block.length; i++) {
+				block[i] = (float) Math.sin(2 * Math.PI * 0.4 * (offset + i));
+			}
+			int count = resampler.process(block, block.length, output);
+			for (int i = 0; i < count; i++, outputFrames++) {
+				if (outputFrames > 100) {
+					energy = Math.max(energy, Math.abs(output[i]));
+				}
+			}
+		}
+		outputFrames += resampler.flush(output);
+		assertThat((double) outputFrames, closeTo(10000, 1));
+		assertThat(energy, lessThan(0.01));
+	}
+}
@@ -0,0 +1,77 @@
+package ch.sulco.yal.dsp.audio;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.util.Arrays;
+
+import javax.sound.sampled.AudioFormat;
+
+import org.junit.Test;
+
+import ch.sulco.yal.dm.PcmBuffer;
+import ch.sulco.yal.dm.SampleFormat;
+
+public class WaveformPyramidTest {
+
+	@Test
+	public void shouldBuildLevelsIncrementallyAndServeAnyWidth() throws Exception {
+		int frames = 10 * WaveformPyramid.BASE_FRAMES + 100;
+		PcmBuffer pcm = PcmBuffer.allocate(frames, 2, SampleFormat.PCM_SIGNED_16);
+		for (int frame = 0; frame < frames; frame++) {
+			pcm.setShort(frame, 0, (short) (frame / WaveformPyramid.BASE_FRAMES * 100));
+			pcm.setShort(frame, 1, (short) -(frame / WaveformPyramid.BASE_FRAMES));
+		}
+		byte[] bytes = new byte[pcm.getByteLength()];
+		pcm.asByteBuffer().get(bytes);
+		WaveformPyramid.Builder builder = new WaveformPyramid.Builder(2);
+		for (int offset = 0; offset < bytes.length; offset += 1000) {
+			builder.add(bytes, offset, Math.min(1000, bytes.length - offset));
+		}
+		WaveformPyramid pyramid = builder.build();
+
+		assertThat(pyramid.getFrameCount(), is(frames));
+		assertThat(pyramid.getLevelCount(), is(5));
+		assertThat(Arrays.toString(pyramid.getPeaks(0, frames, 1)), is("[-10, 1000]"));
+		assertThat(Arrays.toString(pyramid.getPeaks(0, 4 * WaveformPyramid.BASE_FRAMES, 2)), is("[-1, 100, -3, 300]"));
+		assertThat(Arrays.toString(pyramid.getPeaks(0, frames, 4)),
+				is(Arrays.toString(WaveformPyramid.of(pcm).getPeaks(0, frames, 4))));
+
+		WaveformPyramid read = WaveformPyramid.read(pyramid.toByteBuffer());
+		assertThat(read.getFrameCount(), is(frames));
+		assertThat(Arrays.toString(read.getPeaks(100, 2000, 7)), is(Arrays.toString(pyramid.getPeaks(100, 2000, 7))));
+	}
+
+	@Test
+	public void shouldBuildLoopLengthOverviewFromWrappedWrites() {
+		int frames = 3 * WaveformPyramid.BASE_FRAMES + 50;
+		long startFrame = 2 * frames + 500;
+		OverdubBuffer overdubBuffer = new OverdubBuffer(frames, new AudioFormat(44100, 16, 2, true, false));
+		overdubBuffer.start(startFrame);
+		WaveformPyramid.Builder builder = new WaveformPyramid.Builder(2, frames, startFrame);
+		byte[] block = new byte[4 * 100];
+		for (int written = 0; written < frames - 100; written += 100) {
+			for (int i = 0; i < block.length; i += 2) {
+				short value = (short) ((written + i / 4) * (i % 4 == 0 ? 10 : -7));
+				block[i] = (byte) value;
+				block[i + 1] = (byte) (value >> 8);
+			}
+			overdubBuffer.write(block, 0, block.length);
+			builder.add(block, 0, block.length);
+		}
+		WaveformPyramid pyramid = builder.build();
+		WaveformPyramid expected = WaveformPyramid.of(overdubBuffer.getData());
+
+		assertThat(pyramid.getFrameCount(), is(frames));
+		assertThat(pyramid.getLevelCount(), is(expected.getLevelCount()));
+		for (int width : new int[] { 1, 3, 4, 50 }) {
+			assertThat(Arrays.toString(pyramid.getPeaks(0, frames, width)),
+					is(Arrays.toString(expected.getPeaks(0, frames, width))));
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void shouldRejectNonPositiveWidth() {
+		new WaveformPyramid.Builder(2).build().getPeaks(0, 100, -1);
+	}
+}
@@ -0,0 +1,78 @@
+package ch.sulco.yal.dsp.audio.onboard;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.Line;
+import javax.sound.sampled.SourceDataLine;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import ch.sulco.yal.AppConfig;
+
+@RunWith(MockitoJUnitRunner.class)
+public class AudioSystemProviderTest {
+
+	private static final AudioFormat FORMAT = new AudioFormat(44100, 16, 2, true, false);
+
+	@InjectMocks
+	private MockLineAudioSystemProvider audioSystemProvider;
+
+	@Mock
+	private AppConfig appConfig;
+
+	@Before
+	public void setup() {
+		when(this.appConfig.getAudioFormat()).thenReturn(FORMAT);
+		when(this.appConfig.getSampleRate()).thenReturn(44100f);
+		when(this.appConfig.getIdleLineTimeout()).thenReturn(60000L);
+	}
+
+	@Test
+	public void shouldReuseReleasedLineAndCloseItWhenIdle() throws Exception {
+		SourceDataLine line = this.audioSystemProvider.acquireSourceDataLine(null, FORMAT, 4096);
+		SourceDataLine other = this.audioSystemProvider.acquireSourceDataLine(null, FORMAT, 4096);
+		assertThat(other, not(sameInstance(line)));
+		assertThat(this.audioSystemProvider.getOpenLineCount(), is(2));
+
+		this.audioSystemProvider.release(line);
+		verify(line).stop();
+		assertThat(this.audioSystemProvider.getIdleLineCount(), is(1));
+		assertThat(this.audioSystemProvider.acquireSourceDataLine(null, FORMAT, 4096), sameInstance(line));
+		assertThat(this.audioSystemProvider.acquireSourceDataLine(null, FORMAT, 8192), not(sameInstance(line)));
+		assertThat(this.audioSystemProvider.getOpenLineCount(), is(3));
+
+		this.audioSystemProvider.release(line);
+		when(this.appConfig.getIdleLineTimeout()).thenReturn(0L);
+		this.audioSystemProvider.evictIdleLines();
+		verify(line).close();
+		assertThat(this.audioSystemProvider.getOpenLineCount(), is(2));
+		assertThat(this.audioSystemProvider.getIdleLineCount(), is(0));
+	}
+
+	@Test
+	public void shouldComputeDurationsFromFrames() {
+		assertThat(this.audioSystemProvider.getMicrosecondLength(44100), is(1000000L));
+		assertThat(this.audioSystemProvider.getFrameLength(500000), is(22050L));
+	}
+
+	public static class MockLineAudioSystemProvider extends AudioSystemProvider {
+		@Override
+		public SourceDataLine getSourceDataLine(Line.Info info) {
+			SourceDataLine line = mock(SourceDataLine.class);
+			when(line.isOpen()).thenReturn(true);
+			return line;
+		}
+	}
+}
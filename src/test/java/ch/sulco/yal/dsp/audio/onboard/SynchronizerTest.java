@@ -0,0 +1,96 @@
+package ch.sulco.yal.dsp.audio.onboard;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InOrder;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import ch.sulco.yal.AppConfig;
+import ch.sulco.yal.dm.Loop;
+import ch.sulco.yal.dsp.DataStore;
+import ch.sulco.yal.dsp.LoopActivator;
+
+@RunWith(MockitoJUnitRunner.class)
+public class SynchronizerTest {
+
+	private static final int PERIOD_FRAMES = 512;
+
+	@InjectMocks
+	private Synchronizer synchronizer;
+
+	@Mock
+	private AppConfig appConfig;
+
+	@Mock
+	private DataStore dataStore;
+
+	@Mock
+	private LoopActivator loopActivator;
+
+	@Spy
+	private TransportClock transportClock = new TransportClock();
+
+	@Mock
+	private LoopListener loopListener;
+
+	@Before
+	public void setup() {
+		when(this.appConfig.getSampleRate()).thenReturn(44100f);
+		when(this.dataStore.getCurrentLoop()).thenReturn(new Loop(0L));
+		this.synchronizer.setup();
+		this.transportClock.claim(this);
+		this.synchronizer.addLoopListerner(this.loopListener);
+	}
+
+	@Test
+	public void shouldStartLoopsAtBoundaryFrames() {
+		this.advance(2);
+		this.synchronizer.setLength(1000000);
+		this.synchronizer.startLoop();
+		// two loops of 44100 frames, the second boundary is at 1024 + 88200
+		this.advance(175);
+
+		verify(this.loopListener, timeout(1000)).loopStarted(false, 89224);
+		InOrder inOrder = inOrder(this.loopListener);
+		inOrder.verify(this.loopListener).loopStarted(true, 1024);
+		inOrder.verify(this.loopListener).loopStarted(false, 45124);
+		inOrder.verify(this.loopListener).loopStarted(false, 89224);
+		assertThat(this.synchronizer.getCurrentFramePosition(), is(175L * PERIOD_FRAMES + 1024 - 89224));
+		assertThat(this.synchronizer.getFramesSince(89224), is(175L * PERIOD_FRAMES + 1024 - 89224));
+	}
+
+	@Test
+	public void shouldSwitchToNextLoopAtBoundary() {
+		this.synchronizer.setLength(1000000);
+		this.synchronizer.startLoop();
+		verify(this.loopListener, timeout(1000)).loopStarted(true, 0);
+		when(this.dataStore.getNextLoopId()).thenReturn(1L);
+		this.advance(86);
+		verify(this.loopActivator, never()).setCurrentLoopId(1L);
+
+		this.advance(1);
+
+		verify(this.loopListener, timeout(1000)).loopStarted(false, 44100);
+		InOrder inOrder = inOrder(this.loopActivator, this.loopListener);
+		inOrder.verify(this.loopActivator).setCurrentLoopId(1L);
+		inOrder.verify(this.loopListener).loopStarted(false, 44100);
+	}
+
+	private void advance(int periods) {
+		for (int period = 0; period < periods; period++) {
+			this.transportClock.advance(this, PERIOD_FRAMES);
+		}
+	}
+}
@@ -0,0 +1,69 @@
+package ch.sulco.yal.dsp.codec;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+import static org.junit.Assert.assertThat;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Random;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import ch.sulco.yal.dm.PcmBuffer;
+import ch.sulco.yal.dm.SampleFormat;
+
+public class LosslessCodecTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void shouldRoundTripAndCompressTonalSignal() throws Exception {
+		PcmBuffer pcm = PcmBuffer.allocate(10000, 2, SampleFormat.PCM_SIGNED_16);
+		Random random = new Random(42);
+		for (int frame = 0; frame < pcm.getFrameCount(); frame++) {
+			pcm.setShort(frame, 0, (short) (Math.sin(frame * 0.01) * 20000 + random.nextInt(64)));
+			pcm.setShort(frame, 1, frame % 2 == 0 ? Short.MAX_VALUE : Short.MIN_VALUE);
+		}
+
+		Path file = this.write(LosslessCodec.encode(pcm, 1024));
+		PcmBuffer decoded = LosslessSampleFile.decode(file);
+
+		assertThat(decoded.asByteBuffer().equals(pcm.asByteBuffer()), is(true));
+		assertThat(file.toFile().length(), lessThan((long) pcm.getByteLength()));
+	}
+
+	@Test
+	public void shouldDecodeSingleBlock() throws Exception {
+		PcmBuffer pcm = PcmBuffer.allocate(2500, 1, SampleFormat.PCM_SIGNED_16);
+		Random random = new Random(7);
+		for (int frame = 0; frame < pcm.getFrameCount(); frame++) {
+			pcm.setShort(frame, 0, (short) random.nextInt());
+		}
+
+		try (LosslessSampleFile sampleFile = LosslessSampleFile.open(this.write(LosslessCodec.encode(pcm, 1000)))) {
+			assertThat(sampleFile.getBlockCount(), is(3));
+			assertThat(sampleFile.getBlockOf(2100), is(2));
+			assertThat(sampleFile.getBlockFrameCount(2), is(500));
+
+			PcmBuffer block = PcmBuffer.allocate(500, 1, SampleFormat.PCM_SIGNED_16);
+			sampleFile.decodeBlock(2, block, 0);
+			assertThat(block.asByteBuffer().equals(pcm.slice(2000, 500).asByteBuffer()), is(true));
+		}
+	}
+
+	private Path write(ByteBuffer data) throws Exception {
+		Path file = this.folder.newFile("sample" + LosslessCodec.EXTENSION).toPath();
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+			while (data.hasRemaining()) {
+				channel.write(data);
+			}
+		}
+		return file;
+	}
+}
@@ -0,0 +1,58 @@
+package ch.sulco.yal.web;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+import org.junit.Test;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import ch.sulco.yal.dm.Loop;
+import ch.sulco.yal.dm.Sample;
+
+public class LoopDeltaEncoderTest {
+
+	@Test
+	public void shouldOnlySendChangedSampleFields() {
+		LoopDeltaEncoder encoder = new LoopDeltaEncoder();
+		Loop loop = new Loop(3L);
+		loop.addSample(new Sample(1L));
+		loop.addSample(new Sample(2L));
+		encoder.created(loop);
+
+		loop.getSample(2L).setMute(false);
+		JsonObject delta = new JsonParser().parse(encoder.updated(loop)).getAsJsonObject();
+
+		assertThat(delta.get("eventType").getAsString(), is("LoopDelta"));
+		assertThat(delta.get("baseRevision").getAsLong(), is(1L));
+		assertThat(delta.get("revision").getAsLong(), is(2L));
+		assertThat(delta.getAsJsonObject("changes").entrySet().isEmpty(), is(true));
+		assertThat(delta.getAsJsonArray("samples").size(), is(1));
+		JsonObject sample = delta.getAsJsonArray("samples").get(0).getAsJsonObject();
+		assertThat(sample.get("id").getAsLong(), is(2L));
+		assertThat(sample.get("mute").getAsBoolean(), is(false));
+		assertThat(sample.entrySet().size(), is(2));
+
+		assertThat(encoder.updated(loop), is(nullValue()));
+		assertThat(encoder.snapshot(loop).get("revision").getAsLong(), is(2L));
+	}
+
+	@Test
+	public void shouldReportRemovedSamplesAndClearedFields() {
+		LoopDeltaEncoder encoder = new LoopDeltaEncoder();
+		Loop loop = new Loop(3L);
+		loop.setName("verse");
+		loop.addSample(new Sample(1L));
+		encoder.snapshot(loop);
+
+		loop.setName(null);
+		loop.removeSample(1L);
+		JsonObject delta = new JsonParser().parse(encoder.updated(loop)).getAsJsonObject();
+
+		assertThat(delta.get("baseRevision").getAsLong(), is(0L));
+		assertThat(delta.getAsJsonObject("changes").get("name").isJsonNull(), is(true));
+		assertThat(delta.getAsJsonArray("removedSamples").get(0).getAsLong(), is(1L));
+	}
+}
@@ -0,0 +1,71 @@
+package ch.sulco.yal.web;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+
+import org.eclipse.jetty.websocket.api.RemoteEndpoint;
+import org.eclipse.jetty.websocket.api.Session;
+import org.eclipse.jetty.websocket.api.WriteCallback;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+
+public class UpdateBroadcasterTest {
+
+	@Test
+	public void shouldCollapseQueuedUpdatesWhileSendIsInFlight() {
+		RemoteEndpoint remote = mock(RemoteEndpoint.class);
+		Session session = mock(Session.class);
+		when(session.getRemote()).thenReturn(remote);
+		when(session.isOpen()).thenReturn(true);
+		UpdateBroadcaster broadcaster = new UpdateBroadcaster();
+		broadcaster.addSession(session);
+
+		broadcaster.broadcast("loop-1", "recording");
+		broadcaster.broadcast("channel-0", "armed");
+		broadcaster.broadcast("loop-1", "recorded");
+		broadcaster.broadcast("channel-0", "disarmed");
+
+		ArgumentCaptor<WriteCallback> callback = ArgumentCaptor.forClass(WriteCallback.class);
+		verify(remote, times(1)).sendString(anyString(), callback.capture());
+		callback.getValue().writeSuccess();
+		callback.getValue().writeSuccess();
+
+		InOrder inOrder = inOrder(remote);
+		inOrder.verify(remote).sendString(eq("recording"), any(WriteCallback.class));
+		inOrder.verify(remote).sendString(eq("disarmed"), any(WriteCallback.class));
+		inOrder.verify(remote).sendString(eq("recorded"), any(WriteCallback.class));
+		verify(remote, times(3)).sendString(anyString(), any(WriteCallback.class));
+	}
+
+	@Test
+	public void shouldDisconnectClientWhenSendFails() {
+		RemoteEndpoint remote = mock(RemoteEndpoint.class);
+		Session session = mock(Session.class);
+		when(session.getRemote()).thenReturn(remote);
+		when(session.isOpen()).thenReturn(true);
+		UpdateBroadcaster broadcaster = new UpdateBroadcaster();
+		broadcaster.addSession(session);
+
+		broadcaster.broadcast("loop-1", "recording");
+		broadcaster.broadcast("loop-1", "recorded");
+		ArgumentCaptor<WriteCallback> callback = ArgumentCaptor.forClass(WriteCallback.class);
+		verify(remote).sendString(eq("recording"), callback.capture());
+		callback.getValue().writeFailed(new IOException("Broken pipe"));
+		broadcaster.broadcast("loop-1", "playing");
+
+		verify(session).close();
+		assertThat(broadcaster.hasClients(), is(false));
+		verify(remote, times(1)).sendString(anyString(), any(WriteCallback.class));
+	}
+}
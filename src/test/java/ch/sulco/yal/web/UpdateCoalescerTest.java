@@ -0,0 +1,25 @@
+package ch.sulco.yal.web;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+import org.junit.Test;
+
+public class UpdateCoalescerTest {
+
+	@Test
+	public void shouldKeepLatestUpdatePerEntity() {
+		UpdateCoalescer<String> coalescer = new UpdateCoalescer<>(update -> update.substring(0, update.indexOf(':')));
+
+		coalescer.add("loop-1:recording");
+		coalescer.add("channel-0:armed");
+		coalescer.add("loop-1:recorded");
+
+		assertThat(coalescer.drain(), contains("loop-1:recorded", "channel-0:armed"));
+		assertThat(coalescer.drain(), is(empty()));
+		assertThat(coalescer.getReceivedCount(), is(3L));
+		assertThat(coalescer.getFlushedCount(), is(2L));
+	}
+}